@@ -1,5 +1,6 @@
 package io.github.eterverda.sntp.android;
 
+import android.os.Build;
 import android.os.SystemClock;
 
 import io.github.eterverda.sntp.SNTPClient;
@@ -17,7 +18,7 @@ public class AndroidSNTPClientFactory {
                 .setMonotonicClock(ANDROID_SYSTEM_CLOCK);
     }
 
-    static final class AndroidSystemClock implements SNTPClient.MonotonicClock {
+    static final class AndroidSystemClock implements SNTPClient.NanoMonotonicClock {
         AndroidSystemClock() {
         }
 
@@ -25,5 +26,13 @@ public class AndroidSNTPClientFactory {
         public long ticks() {
             return SystemClock.elapsedRealtime();
         }
+
+        @Override
+        public long nanoTicks() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                return SystemClock.elapsedRealtimeNanos();
+            }
+            return SystemClock.elapsedRealtime() * 1000000L;
+        }
     }
 }
@@ -7,6 +7,7 @@ import android.content.Intent;
 import androidx.annotation.NonNull;
 
 import io.github.eterverda.sntp.SNTP;
+import io.github.eterverda.sntp.SNTPResponse;
 import io.github.eterverda.sntp.cache.SNTPCache;
 
 public final class SNTPSyncReceiver extends BroadcastReceiver {
@@ -16,7 +17,9 @@ public final class SNTPSyncReceiver extends BroadcastReceiver {
         if (Intent.ACTION_TIME_CHANGED.equals(action)) {
             final SNTPCache cache = SNTP.getCache();
             if (cache != null) {
-                cache.put(null);
+                // monotonic response survives wall clock change, just restate it in terms of new wall clock
+                final SNTPResponse response = cache.get();
+                cache.put(response != null && response.isMonotonic() ? response.rebase() : null);
             }
         }
 
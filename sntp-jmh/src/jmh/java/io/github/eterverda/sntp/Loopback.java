@@ -0,0 +1,38 @@
+package io.github.eterverda.sntp;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import io.github.eterverda.sntp.cache.SNTPCacheBuilder;
+import io.github.eterverda.sntp.server.SNTPServer;
+import io.github.eterverda.sntp.server.SNTPServerBuilder;
+
+/**
+ * Stand-in NTP server on loopback interface answering with local time shifted by given offset.
+ * Binds to ephemeral port so it does not need privileges, see {@link SNTPClientBuilder#setPort(int)}.
+ */
+final class Loopback {
+    private Loopback() {
+    }
+
+    static SNTPServer server(long offset) throws IOException {
+        final long now = System.currentTimeMillis();
+        return SNTPServerBuilder.custom()
+                .setCache(SNTPCacheBuilder.custom()
+                        .setExpirationInterval(Long.MAX_VALUE)
+                        .setInitialResponse(SNTPResponse.unflatten(now, offset, SNTPResponse.UNKNOWN, SNTPResponse.UNKNOWN, 0))
+                        .build())
+                .setAddress(InetAddress.getLoopbackAddress())
+                .setPort(0)
+                .setThreads(1)
+                .build();
+    }
+
+    static SNTPHosts hosts(int count) {
+        final String[] hosts = new String[count];
+        for (int i = 0; i < count; i++) {
+            hosts[i] = InetAddress.getLoopbackAddress().getHostAddress();
+        }
+        return new SNTPHosts(hosts);
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.eterverda.sntp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eterverda.sntp.cache.SNTPCache;
+import io.github.eterverda.sntp.cache.SNTPCacheBuilder;
+
+/**
+ * Local to global time conversion of batches of timestamps, per element against cache and in bulk. Scores are
+ * per timestamp. Conversion is in place so values grow by offset every invocation which does not matter here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SNTPBulkConversionBenchmark {
+    private static final int SIZE = 4096;
+
+    @Param({"0", "20e-6"})
+    public double drift;
+
+    private final long[] array = new long[SIZE];
+    private final LongBuffer heap = LongBuffer.allocate(SIZE);
+    private final LongBuffer direct = ByteBuffer.allocateDirect(SIZE * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+
+    private SNTPResponse response;
+    private SNTPCache cache;
+
+    @Setup
+    public void setUp() {
+        final long now = System.currentTimeMillis();
+        response = SNTPResponse.create(now, now + 1000).withDrift(drift);
+        cache = SNTPCacheBuilder.custom()
+                .setInitialResponse(response)
+                .setDriftCorrection(false)
+                .setExpirationInterval(Long.MAX_VALUE)
+                .build();
+
+        for (int i = 0; i < SIZE; i++) {
+            array[i] = now + i;
+            heap.put(i, now + i);
+            direct.put(i, now + i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long[] perElementFromCache() {
+        for (int i = 0; i < SIZE; i++) {
+            array[i] = cache.get().globalTimeMillis(array[i]);
+        }
+        return array;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long[] perElement() {
+        final SNTPResponse response = this.response;
+        for (int i = 0; i < SIZE; i++) {
+            array[i] = response.globalTimeMillis(array[i]);
+        }
+        return array;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long[] bulkArray() {
+        response.globalTimeMillis(array, 0, SIZE);
+        return array;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public LongBuffer bulkHeapBuffer() {
+        response.globalTimeMillis(heap);
+        return heap;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public LongBuffer bulkDirectBuffer() {
+        response.globalTimeMillis(direct);
+        return direct;
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.eterverda.sntp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eterverda.sntp.cache.SNTPCache;
+import io.github.eterverda.sntp.cache.SNTPCacheBuilder;
+import io.github.eterverda.sntp.server.SNTPServer;
+
+/**
+ * Warm cache reads through every {@link SNTPCacheBuilder} configuration. Run with {@code -prof gc} to see that
+ * reads do not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SNTPCacheReadBenchmark {
+    @Param({"memory", "forever", "file", "shared", "unfiltered", "refreshing"})
+    public String config;
+
+    private File file;
+    private SNTPServer server;
+    private SNTPCache cache;
+
+    @Setup
+    public void setUp() throws IOException {
+        final long now = System.currentTimeMillis();
+        final SNTPCacheBuilder builder = SNTPCacheBuilder.custom()
+                .setInitialResponse(SNTPResponse.create(now, now + 1000));
+
+        switch (config) {
+            case "memory":
+                break;
+            case "forever":
+                builder.setExpirationInterval(Long.MAX_VALUE);
+                break;
+            case "file":
+                file = File.createTempFile("sntp", null);
+                builder.setFile(file);
+                break;
+            case "shared":
+                file = File.createTempFile("sntp", null);
+                builder.setSharedFile(file);
+                break;
+            case "unfiltered":
+                builder.setFiltering(false).setDriftCorrection(false);
+                break;
+            case "refreshing":
+                server = Loopback.server(1000);
+                builder.setRefreshClient(SNTPClientBuilder.custom()
+                        .setHosts(Loopback.hosts(1))
+                        .setPort(server.getPort())
+                        .build());
+                break;
+            default:
+                throw new IllegalArgumentException("unknown config " + config);
+        }
+        cache = builder.build();
+
+        // each configuration runs in its own fork
+        SNTP.setCache(cache);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public long systemCurrentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public long cacheGet() {
+        return cache.get().currentGlobalTimeMillis();
+    }
+
+    @Benchmark
+    public long currentTimeMillisFromCache() {
+        return SNTP.currentTimeMillisFromCache();
+    }
+
+    @Benchmark
+    public long currentTimeNanos() throws IOException {
+        return SNTP.currentTimeNanos();
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.eterverda.sntp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eterverda.sntp.server.SNTPServer;
+
+/**
+ * End-to-end requests against loopback {@link SNTPServer}, so numbers show client overhead rather than network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SNTPClientBenchmark {
+    private SNTPServer server;
+    private SNTPClient client;
+    private SNTPClient parallelClient;
+    private SNTPEngine engine;
+    private InetAddress address;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = Loopback.server(1000);
+        address = InetAddress.getLoopbackAddress();
+
+        final SNTPClientBuilder builder = SNTPClientBuilder.custom()
+                .setPort(server.getPort())
+                .setSoTimeout(1000)
+                .setMonotonicClock(SNTPClient.NANO_TIME_CLOCK);
+
+        client = builder.setHosts(Loopback.hosts(1)).build();
+        parallelClient = builder.setHosts(Loopback.hosts(3)).setParallelism(3).build();
+        engine = builder.buildEngine();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        engine.close();
+        server.close();
+    }
+
+    @Benchmark
+    public SNTPResponse execute() throws IOException {
+        return client.execute();
+    }
+
+    @Benchmark
+    public SNTPResponse executeParallel() throws IOException {
+        return parallelClient.execute();
+    }
+
+    @Benchmark
+    public SNTPResponse engineSubmit() throws InterruptedException, ExecutionException {
+        return engine.submit(address).get();
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.eterverda.sntp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SNTPHosts#nextHost()} alone and with all threads hammering the same instance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SNTPHostsBenchmark {
+    private final SNTPHosts hosts = SNTPHosts.GLOBAL;
+
+    @Benchmark
+    @Threads(1)
+    public String nextHost() {
+        return hosts.nextHost();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String nextHostContended() {
+        return hosts.nextHost();
+    }
+}
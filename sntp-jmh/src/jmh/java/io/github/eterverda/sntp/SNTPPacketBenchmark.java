@@ -0,0 +1,57 @@
+package io.github.eterverda.sntp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packet encoding and decoding helpers of {@link SNTPPacket}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SNTPPacketBenchmark {
+    private final byte[] buffer = new byte[SNTPPacket.SIZE];
+    private long time;
+
+    @Setup
+    public void setUp() {
+        time = System.currentTimeMillis();
+        SNTPPacket.writeMode(buffer);
+        SNTPPacket.writeTimestamp(time, buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
+        SNTPPacket.writeTimestamp(time, buffer, SNTPPacket.RECEIVE_TIME_OFFSET);
+    }
+
+    @Benchmark
+    public byte[] writeTimestamp() {
+        SNTPPacket.writeTimestamp(time, buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
+        return buffer;
+    }
+
+    @Benchmark
+    public long readTimestamp() {
+        return SNTPPacket.readTimestamp(buffer, SNTPPacket.RECEIVE_TIME_OFFSET);
+    }
+
+    @Benchmark
+    public long readTimestampNanos() {
+        return SNTPPacket.readTimestampNanos(buffer, SNTPPacket.RECEIVE_TIME_OFFSET);
+    }
+
+    @Benchmark
+    public long readDurationNanos() {
+        return SNTPPacket.readDurationNanos(buffer, SNTPPacket.ROOT_DISPERSION_OFFSET);
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.eterverda.sntp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SNTPResponse} text codec, both string and buffer flavours.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SNTPResponseFormatBenchmark {
+    private static final String STRING = "sys 2015-11-11T08:56:13.884Z ntp 2015-11-11T08:56:14.885Z off 1001 del 12 dis 3 ppb -20000";
+
+    private final char[] buffer = new char[SNTPResponse.MAX_FLATTENED_LENGTH];
+    private SNTPResponse response;
+    private int length;
+
+    @Setup
+    public void setUp() throws ParseException {
+        response = SNTPResponse.unflattenFromString(STRING);
+        length = response.flattenTo(buffer, 0);
+    }
+
+    @Benchmark
+    public String flattenToString() {
+        return response.flattenToString();
+    }
+
+    @Benchmark
+    public int flattenTo() {
+        return response.flattenTo(buffer, 0);
+    }
+
+    @Benchmark
+    public SNTPResponse unflattenFromString() throws ParseException {
+        return SNTPResponse.unflattenFromString(STRING);
+    }
+
+    @Benchmark
+    public SNTPResponse unflattenFrom() throws ParseException {
+        return SNTPResponse.unflattenFrom(STRING, 0, length);
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.eterverda.sntp.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eterverda.sntp.SNTPResponse;
+
+/**
+ * Cold reads and writes of {@link SimpleFileSNTPCache}, i.e. what process start and every refresh pay.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleFileSNTPCacheBenchmark {
+    private static final String STRING = "sys 2015-11-11T08:56:13.884Z ntp 2015-11-11T08:56:14.885Z off 1001 del 12 dis 3";
+
+    private File file;
+    private SNTPResponse response;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        file = File.createTempFile("sntp", null);
+        response = SNTPResponse.unflattenFromString(STRING);
+        SimpleFileSNTPCache.write(file, response);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public SNTPResponse read() throws IOException, ParseException {
+        return SimpleFileSNTPCache.read(file);
+    }
+
+    @Benchmark
+    public File write() throws IOException {
+        SimpleFileSNTPCache.write(file, response);
+        return file;
+    }
+}
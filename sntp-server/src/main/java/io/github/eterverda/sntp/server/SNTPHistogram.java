@@ -0,0 +1,118 @@
+package io.github.eterverda.sntp.server;
+
+/**
+ * Log-linear histogram of signed values in the spirit of HdrHistogram: values below 128 are counted exactly,
+ * larger ones in buckets whose width is at most 1/64 of their value. Memory is fixed and recording never allocates.
+ * <p/>
+ * Not thread-safe.
+ */
+public final class SNTPHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int BUCKETS = SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+
+    private final long[] positive = new long[BUCKETS];
+    private final long[] negative = new long[BUCKETS];
+
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public void record(long value) {
+        if (value >= 0) {
+            positive[index(value)]++;
+        } else {
+            negative[index(value == Long.MIN_VALUE ? Long.MAX_VALUE : -value)]++;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return value such that given percentage of recorded values are not greater than it,
+     * within precision of bucket; 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile out of range: " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+        long seen = 0;
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            seen += negative[i];
+            if (seen >= rank) {
+                return clamp(-lowestValue(i));
+            }
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += positive[i];
+            if (seen >= rank) {
+                return clamp(highestValue(i));
+            }
+        }
+        return max;
+    }
+
+    private long clamp(long value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    static int index(long value) {
+        final int msb = 63 - Long.numberOfLeadingZeros(value);
+        if (msb < SUB_BUCKET_BITS) {
+            return (int) value;
+        }
+        final int shift = msb - SUB_BUCKET_BITS + 1;
+        final int top = (int) (value >>> shift);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (top - HALF_SUB_BUCKETS);
+    }
+
+    static long lowestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        final long top = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return top << shift;
+    }
+
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        return lowestValue(index) + (1L << shift) - 1;
+    }
+
+    /**
+     * @return percentile table, e.g. {@code "p50=12 p90=15 p99=40 p99.9=41 p99.99=41 max=41 (n=1000)"}
+     */
+    @Override
+    public String toString() {
+        return "p50=" + getValueAtPercentile(50)
+                + " p90=" + getValueAtPercentile(90)
+                + " p99=" + getValueAtPercentile(99)
+                + " p99.9=" + getValueAtPercentile(99.9)
+                + " p99.99=" + getValueAtPercentile(99.99)
+                + " max=" + (count != 0 ? max : 0)
+                + " (n=" + count + ")";
+    }
+}
@@ -0,0 +1,351 @@
+package io.github.eterverda.sntp.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import io.github.eterverda.sntp.SNTPPacket;
+import io.github.eterverda.sntp.SNTPResponse;
+import io.github.eterverda.sntp.cache.SNTPCacheBuilder;
+
+/**
+ * Drives SNTP server on loopback interface at fixed request rate and records round-trip time and offset
+ * distributions.
+ * <p/>
+ * Load is open-loop: requests are sent on schedule regardless of replies and round-trip time is measured from
+ * scheduled send time, so a stalled server shows up as latency instead of as a slower send rate. Requests are
+ * spread over many channels to exercise different source ports. Replies are matched by originate timestamp whose
+ * fraction carries request number.
+ * <p/>
+ * Usage: {@code SNTPLoadGenerator [port [rate [seconds [ports]]]]}. Without port or with port 0 in-process
+ * {@link SNTPServer} is started.
+ */
+public final class SNTPLoadGenerator {
+    public static final int DEFAULT_RATE = 10_000;
+    public static final long DEFAULT_DURATION = 10_000;
+    public static final int DEFAULT_PORTS = 64;
+    public static final int DEFAULT_TIMEOUT = 1_000;
+
+    // parking is too coarse for shorter waits
+    private static final long SPIN_THRESHOLD_NANOS = 50_000;
+
+    private final InetSocketAddress target;
+    private int rate = DEFAULT_RATE;
+    private long duration = DEFAULT_DURATION;
+    private int ports = DEFAULT_PORTS;
+    private int timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * @param target server address, must be loopback
+     */
+    public SNTPLoadGenerator(InetSocketAddress target) {
+        if (target == null) {
+            throw new IllegalArgumentException("target == null");
+        }
+        if (target.getAddress() == null || !target.getAddress().isLoopbackAddress()) {
+            throw new IllegalArgumentException("target is not loopback: " + target);
+        }
+        this.target = target;
+    }
+
+    /**
+     * @param rate requests per second
+     */
+    public SNTPLoadGenerator setRate(int rate) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("rate < 1");
+        }
+        this.rate = rate;
+        return this;
+    }
+
+    /**
+     * @param duration duration of sending in milliseconds
+     */
+    public SNTPLoadGenerator setDuration(long duration) {
+        if (duration < 1) {
+            throw new IllegalArgumentException("duration < 1");
+        }
+        this.duration = duration;
+        return this;
+    }
+
+    /**
+     * @param ports number of source ports requests are spread over
+     */
+    public SNTPLoadGenerator setPorts(int ports) {
+        if (ports < 1) {
+            throw new IllegalArgumentException("ports < 1");
+        }
+        this.ports = ports;
+        return this;
+    }
+
+    /**
+     * @param timeout time in milliseconds to wait for replies after the last request is sent
+     */
+    public SNTPLoadGenerator setTimeout(int timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout < 0");
+        }
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Sends requests on schedule on calling thread while replies are received on another one.
+     *
+     * @throws IOException if channels cannot be opened
+     */
+    public Report run() throws IOException {
+        final long total = Math.max(rate * duration / 1000, 1);
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalStateException("too many requests: " + total);
+        }
+        final long period = TimeUnit.SECONDS.toNanos(1) / rate;
+
+        final Run run = new Run((int) total);
+        final Selector selector = Selector.open();
+        final DatagramChannel[] channels = new DatagramChannel[ports];
+        try {
+            for (int i = 0; i < ports; i++) {
+                channels[i] = DatagramChannel.open();
+                channels[i].configureBlocking(false);
+                channels[i].connect(target);
+                channels[i].register(selector, SelectionKey.OP_READ);
+            }
+
+            final Thread receiver = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    receive(selector, run);
+                }
+            }, "SNTPLoadGenerator");
+            receiver.setDaemon(true);
+            receiver.start();
+
+            send(channels, run, period);
+
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(timeout));
+            run.done = true;
+            selector.wakeup();
+            try {
+                receiver.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return run.report();
+
+        } finally {
+            for (DatagramChannel channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+            selector.close();
+        }
+    }
+
+    private static void send(DatagramChannel[] channels, Run run, long period) {
+        final byte[] buffer = new byte[SNTPPacket.SIZE];
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        SNTPPacket.writeMode(buffer);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < run.total; i++) {
+            final long scheduled = start + i * period;
+            for (long wait = scheduled - System.nanoTime(); wait > 0; wait = scheduled - System.nanoTime()) {
+                if (wait > SPIN_THRESHOLD_NANOS) {
+                    LockSupport.parkNanos(wait - SPIN_THRESHOLD_NANOS);
+                } else {
+                    Thread.yield();
+                }
+            }
+            final long sent = System.nanoTime();
+            // fraction of transmit timestamp is echoed back as originate timestamp, use it as request number
+            byteBuffer.putInt(SNTPPacket.TRANSMIT_TIME_OFFSET, (int) (run.wallMillis(sent) / 1000 + SNTPPacket.OFFSET_1900_TO_1970));
+            byteBuffer.putInt(SNTPPacket.TRANSMIT_TIME_OFFSET + 4, i);
+            run.sent.set(i, sent);
+            run.scheduled.set(i, scheduled);
+
+            byteBuffer.clear();
+            try {
+                if (channels[i % channels.length].write(byteBuffer) == 0) {
+                    run.scheduled.set(i, 0); // socket buffer is full, counts as lost
+                }
+            } catch (IOException e) {
+                run.scheduled.set(i, 0);
+            }
+        }
+    }
+
+    private static void receive(Selector selector, Run run) {
+        final byte[] buffer = new byte[SNTPPacket.SIZE];
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+
+        while (!run.done) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                return;
+            }
+            final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                final SelectionKey key = keys.next();
+                keys.remove();
+                final DatagramChannel channel = (DatagramChannel) key.channel();
+                try {
+                    byteBuffer.clear();
+                    while (channel.read(byteBuffer) > 0) {
+                        final long now = System.nanoTime();
+                        if (byteBuffer.position() == SNTPPacket.SIZE) {
+                            run.record(buffer, byteBuffer.getInt(SNTPPacket.ORIGINATE_TIME_OFFSET + 4), now);
+                        }
+                        byteBuffer.clear();
+                    }
+                } catch (IOException ignore) {
+                    // e.g. port unreachable when there is no server
+                }
+            }
+        }
+    }
+
+    private static final class Run {
+        final int total;
+        // round trip is measured from scheduled time so that sender lag is not hidden, 0 once request is answered
+        final AtomicLongArray scheduled;
+        // offset is measured from actual send time since lag would bias it by half
+        final AtomicLongArray sent;
+        final long startNanos = System.nanoTime();
+        final long startMillis = System.currentTimeMillis();
+        volatile boolean done;
+
+        // accessed by receiver thread only
+        final SNTPHistogram roundTripMicros = new SNTPHistogram();
+        final SNTPHistogram offsetMillis = new SNTPHistogram();
+
+        Run(int total) {
+            this.total = total;
+            this.scheduled = new AtomicLongArray(total);
+            this.sent = new AtomicLongArray(total);
+        }
+
+        long wallMillis(long nanos) {
+            return startMillis + TimeUnit.NANOSECONDS.toMillis(nanos - startNanos);
+        }
+
+        void record(byte[] buffer, int i, long now) {
+            if (i < 0 || i >= total) {
+                return;
+            }
+            final long scheduled = this.scheduled.getAndSet(i, 0);
+            if (scheduled == 0) {
+                return; // duplicate or unsolicited
+            }
+            final long sent = this.sent.get(i);
+            final long receive = SNTPPacket.readTimestamp(buffer, SNTPPacket.RECEIVE_TIME_OFFSET);
+            final long transmit = SNTPPacket.readTimestamp(buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
+
+            roundTripMicros.record(TimeUnit.NANOSECONDS.toMicros(now - scheduled));
+            offsetMillis.record(((receive - wallMillis(sent)) + (transmit - wallMillis(now))) / 2);
+        }
+
+        Report report() {
+            return new Report(total, roundTripMicros.getCount(), roundTripMicros, offsetMillis);
+        }
+    }
+
+    public static final class Report {
+        private final long sent;
+        private final long received;
+        private final SNTPHistogram roundTripMicros;
+        private final SNTPHistogram offsetMillis;
+
+        Report(long sent, long received, SNTPHistogram roundTripMicros, SNTPHistogram offsetMillis) {
+            this.sent = sent;
+            this.received = received;
+            this.roundTripMicros = roundTripMicros;
+            this.offsetMillis = offsetMillis;
+        }
+
+        public long getSent() {
+            return sent;
+        }
+
+        public long getReceived() {
+            return received;
+        }
+
+        public double getLossRate() {
+            return sent != 0 ? (double) (sent - received) / sent : 0;
+        }
+
+        /**
+         * @return round-trip times in microseconds measured from scheduled send time
+         */
+        public SNTPHistogram getRoundTrip() {
+            return roundTripMicros;
+        }
+
+        /**
+         * @return clock offsets in milliseconds measured from actual send time
+         */
+        public SNTPHistogram getOffset() {
+            return offsetMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "sent " + sent + " received " + received + " loss " + String.format("%.4f%%", getLossRate() * 100) + "\n"
+                    + "rtt us " + roundTripMicros + "\n"
+                    + "off ms " + offsetMillis;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        final int rate = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RATE;
+        final long duration = args.length > 2 ? Long.parseLong(args[2]) * 1000 : DEFAULT_DURATION;
+        final int ports = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_PORTS;
+
+        SNTPServer server = null;
+        try {
+            final int targetPort;
+            if (port != 0) {
+                targetPort = port;
+            } else {
+                final long now = System.currentTimeMillis();
+                server = SNTPServerBuilder.custom()
+                        .setCache(SNTPCacheBuilder.custom()
+                                .setExpirationInterval(Long.MAX_VALUE)
+                                .setInitialResponse(SNTPResponse.unflatten(now, 0, SNTPResponse.UNKNOWN, SNTPResponse.UNKNOWN, 0))
+                                .build())
+                        .setAddress(InetAddress.getLoopbackAddress())
+                        .setPort(0)
+                        .build();
+                targetPort = server.getPort();
+            }
+
+            final Report report = new SNTPLoadGenerator(new InetSocketAddress(InetAddress.getLoopbackAddress(), targetPort))
+                    .setRate(rate)
+                    .setDuration(duration)
+                    .setPorts(ports)
+                    .run();
+
+            System.out.println(report);
+
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package io.github.eterverda.sntp.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+
+import io.github.eterverda.sntp.SNTPClient;
+import io.github.eterverda.sntp.SNTPPacket;
+import io.github.eterverda.sntp.SNTPResponse;
+import io.github.eterverda.sntp.cache.SNTPCache;
+
+/**
+ * Answers SNTP client requests with time of {@link SNTPCache}, i.e. relays time obtained by {@link SNTPClient}
+ * to other machines.
+ * <p/>
+ * Each receive loop owns its own blocking {@link DatagramChannel} and preallocated direct buffer. Channels share
+ * port through {@code SO_REUSEPORT} so kernel spreads requests between loops; where it is not supported single
+ * loop is used. Requests are ignored while cache has no response.
+ *
+ * @see SNTPServerBuilder
+ */
+public final class SNTPServer implements Closeable {
+    private static final int NTP_VERSION_MIN = 1;
+    private static final int NTP_VERSION_MAX = 4;
+    private static final int PRECISION = -10; // about a millisecond
+
+    // room for extension fields and MAC which are ignored
+    private static final int BUFFER_SIZE = 512;
+
+    // RFC 5905 frequency tolerance, dispersion grows by that much per millisecond since response
+    private static final double PHI = 15e-6;
+
+    private final SNTPCache cache;
+    private final int stratum;
+    private final DatagramChannel[] channels;
+    private final Loop[] loops;
+    private final Thread[] threads;
+
+    SNTPServer(SNTPCache cache, InetAddress address, int port, int threads, int stratum) throws IOException {
+        this.cache = cache;
+        this.stratum = stratum;
+
+        final DatagramChannel first = DatagramChannel.open();
+        final boolean reusePort = first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        final int count = reusePort ? threads : 1;
+
+        channels = new DatagramChannel[count];
+        channels[0] = first;
+        try {
+            bind(first, new InetSocketAddress(address, port), reusePort);
+
+            final SocketAddress local = first.getLocalAddress();
+            for (int i = 1; i < count; i++) {
+                channels[i] = DatagramChannel.open();
+                bind(channels[i], local, true);
+            }
+        } catch (IOException e) {
+            closeChannels();
+            throw e;
+        }
+
+        loops = new Loop[count];
+        this.threads = new Thread[count];
+        for (int i = 0; i < count; i++) {
+            loops[i] = new Loop(channels[i]);
+            this.threads[i] = new Thread(loops[i], "SNTPServer-" + i);
+            this.threads[i].setDaemon(true);
+            this.threads[i].start();
+        }
+    }
+
+    private static void bind(DatagramChannel channel, SocketAddress address, boolean reusePort) throws IOException {
+        if (reusePort) {
+            channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, 1 << 20);
+        channel.bind(address);
+    }
+
+    /**
+     * @return actual port, useful when server was built with ephemeral port
+     */
+    public int getPort() {
+        return channels[0].socket().getLocalPort();
+    }
+
+    /**
+     * @return number of receive loops
+     */
+    public int getThreads() {
+        return loops.length;
+    }
+
+    public long getResponseCount() {
+        long count = 0;
+        for (Loop loop : loops) {
+            count += loop.responses;
+        }
+        return count;
+    }
+
+    /**
+     * @return number of datagrams that were not answered, either malformed or received while cache was empty
+     */
+    public long getDroppedCount() {
+        long count = 0;
+        for (Loop loop : loops) {
+            count += loop.dropped;
+        }
+        return count;
+    }
+
+    /**
+     * Stops all receive loops and waits for them to finish.
+     */
+    @Override
+    public void close() throws IOException {
+        closeChannels();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void closeChannels() throws IOException {
+        IOException failure = null;
+        for (DatagramChannel channel : channels) {
+            if (channel == null) {
+                continue;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Fills server reply in place of request.
+     *
+     * @return {@code false} if request must be dropped
+     */
+    private boolean answer(ByteBuffer buffer, int length, SNTPResponse response, long receiveTime) {
+        if (length < SNTPPacket.SIZE) {
+            return false;
+        }
+        final int header = buffer.get(0);
+        final int version = (header >> 3) & 0x7;
+        if ((header & 0x7) != SNTPPacket.MODE_CLIENT || version < NTP_VERSION_MIN || version > NTP_VERSION_MAX) {
+            return false;
+        }
+
+        final long delay = response.getRoundTripDelayNanos();
+        final long dispersion = response.getDispersionNanos();
+        final long age = Math.max(receiveTime - response.getResponseTimeNanos() - response.getClockOffsetNanos(), 0);
+
+        buffer.put(0, (byte) ((version << 3) | SNTPPacket.MODE_SERVER)); // no leap warning
+        buffer.put(1, (byte) stratum);
+        // poll interval at offset 2 is echoed as is
+        buffer.put(3, (byte) PRECISION);
+        SNTPPacket.writeDurationNanos(delay != SNTPResponse.UNKNOWN ? delay : 0, buffer, SNTPPacket.ROOT_DELAY_OFFSET);
+        SNTPPacket.writeDurationNanos((dispersion != SNTPResponse.UNKNOWN ? dispersion : 0) + (long) Math.ceil(age * PHI), buffer, SNTPPacket.ROOT_DISPERSION_OFFSET);
+        buffer.putInt(SNTPPacket.REFERENCE_ID_OFFSET, 0); // reference id of upstream is unknown
+        SNTPPacket.writeTimestampNanos(response.getResponseTimeNanos() + response.getClockOffsetNanos(), buffer, SNTPPacket.REFERENCE_TIME_OFFSET);
+        buffer.putLong(SNTPPacket.ORIGINATE_TIME_OFFSET, buffer.getLong(SNTPPacket.TRANSMIT_TIME_OFFSET));
+        SNTPPacket.writeTimestampNanos(receiveTime, buffer, SNTPPacket.RECEIVE_TIME_OFFSET);
+        SNTPPacket.writeTimestampNanos(response.currentGlobalTimeNanos(), buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
+
+        buffer.limit(SNTPPacket.SIZE);
+        buffer.position(0);
+        return true;
+    }
+
+    private final class Loop implements Runnable {
+        private final DatagramChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        // written by loop thread only
+        volatile long responses;
+        volatile long dropped;
+
+        Loop(DatagramChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        @SuppressWarnings("NonAtomicOperationOnVolatileField")
+        public void run() {
+            while (channel.isOpen()) {
+                try {
+                    buffer.clear();
+                    final SocketAddress client = channel.receive(buffer);
+                    final int length = buffer.position();
+
+                    final SNTPResponse response = cache.get();
+                    if (response == null) {
+                        dropped++;
+                        continue;
+                    }
+                    final long receiveTime = response.currentGlobalTimeNanos();
+
+                    if (!answer(buffer, length, response, receiveTime)) {
+                        dropped++;
+                        continue;
+                    }
+                    channel.send(buffer, client);
+                    responses++;
+
+                } catch (ClosedChannelException e) {
+                    return;
+
+                } catch (IOException ignore) {
+                    // e.g. ICMP port unreachable reported for previous reply
+                }
+            }
+        }
+    }
+}
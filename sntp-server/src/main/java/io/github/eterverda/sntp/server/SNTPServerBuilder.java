@@ -0,0 +1,89 @@
+package io.github.eterverda.sntp.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import io.github.eterverda.sntp.SNTPClient;
+import io.github.eterverda.sntp.SNTPPacket;
+import io.github.eterverda.sntp.cache.SNTPCache;
+
+public final class SNTPServerBuilder {
+    public static final int DEFAULT_STRATUM = 2;
+
+    private SNTPCache cache;
+    private InetAddress address;
+    private int port = SNTPPacket.PORT;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int stratum = DEFAULT_STRATUM;
+
+    private SNTPServerBuilder() {
+    }
+
+    public static SNTPServerBuilder custom() {
+        return new SNTPServerBuilder();
+    }
+
+    /**
+     * @param cache source of time, usually refreshed by {@link SNTPClient} from upstream servers
+     */
+    public SNTPServerBuilder setCache(SNTPCache cache) {
+        if (cache == null) {
+            throw new IllegalArgumentException("cache == null");
+        }
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * @param address local address to listen on or {@code null} for all interfaces
+     */
+    public SNTPServerBuilder setAddress(InetAddress address) {
+        this.address = address;
+        return this;
+    }
+
+    /**
+     * @param port port to listen on, standard NTP port 123 by default or 0 for ephemeral port
+     */
+    public SNTPServerBuilder setPort(int port) {
+        if (port < 0 || port > 0xffff) {
+            throw new IllegalArgumentException("port out of range: " + port);
+        }
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * @param threads number of receive loops sharing port, number of processors by default
+     */
+    public SNTPServerBuilder setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads < 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param stratum stratum announced to clients, should be one more than stratum of upstream servers
+     */
+    public SNTPServerBuilder setStratum(int stratum) {
+        if (stratum < 1 || stratum > 15) {
+            throw new IllegalArgumentException("stratum out of range: " + stratum);
+        }
+        this.stratum = stratum;
+        return this;
+    }
+
+    /**
+     * Binds channels and starts receive loops.
+     *
+     * @throws IOException if port cannot be bound
+     */
+    public SNTPServer build() throws IOException {
+        if (cache == null) {
+            throw new IllegalStateException("cache not set");
+        }
+        return new SNTPServer(cache, address, port, threads, stratum);
+    }
+}
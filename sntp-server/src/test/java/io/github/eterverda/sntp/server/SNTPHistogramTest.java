@@ -0,0 +1,61 @@
+package io.github.eterverda.sntp.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SNTPHistogramTest {
+    @Test
+    public void testEmpty() {
+        final SNTPHistogram histogram = new SNTPHistogram();
+
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        final SNTPHistogram histogram = new SNTPHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        Assert.assertEquals(50, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(99, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(100, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testLargeValuesArePrecise() {
+        final SNTPHistogram histogram = new SNTPHistogram();
+        for (int i = 1; i <= 1_000_000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        Assert.assertEquals(500_000_000, histogram.getValueAtPercentile(50), 500_000_000 / 64);
+        Assert.assertEquals(990_000_000, histogram.getValueAtPercentile(99), 990_000_000 / 64);
+        Assert.assertEquals(1_000_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testNegativeValues() {
+        final SNTPHistogram histogram = new SNTPHistogram();
+        for (int i = -50; i < 50; i++) {
+            histogram.record(i * 10);
+        }
+
+        Assert.assertEquals(-500, histogram.getValueAtPercentile(0));
+        Assert.assertEquals(-10, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(490, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testBuckets() {
+        for (long value = 1; value > 0; value = value * 3 + 1) {
+            final int index = SNTPHistogram.index(value);
+
+            Assert.assertTrue(SNTPHistogram.lowestValue(index) <= value);
+            Assert.assertTrue(SNTPHistogram.highestValue(index) >= value);
+        }
+        Assert.assertEquals(SNTPHistogram.index(Long.MAX_VALUE), SNTPHistogram.index(Long.MAX_VALUE - 1));
+    }
+}
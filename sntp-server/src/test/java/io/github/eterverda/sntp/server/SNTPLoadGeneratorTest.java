@@ -0,0 +1,59 @@
+package io.github.eterverda.sntp.server;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import io.github.eterverda.sntp.SNTPResponse;
+import io.github.eterverda.sntp.cache.SNTPCacheBuilder;
+
+public class SNTPLoadGeneratorTest {
+    private static final long OFFSET = 1000;
+
+    private SNTPServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = SNTPServerBuilder.custom()
+                .setCache(SNTPCacheBuilder.custom()
+                        .setExpirationInterval(Long.MAX_VALUE)
+                        .setInitialResponse(SNTPResponse.unflatten(System.currentTimeMillis(), OFFSET, SNTPResponse.UNKNOWN, SNTPResponse.UNKNOWN, 0))
+                        .build())
+                .setAddress(InetAddress.getLoopbackAddress())
+                .setPort(0)
+                .setThreads(2)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        server = null;
+    }
+
+    @Test
+    public void testRun() throws IOException {
+        final SNTPLoadGenerator.Report report = new SNTPLoadGenerator(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()))
+                .setRate(2000)
+                .setDuration(500)
+                .setPorts(8)
+                .setTimeout(200)
+                .run();
+
+        Assert.assertEquals(1000, report.getSent());
+        // loss depends on load of machine, it is a benchmark number rather than something to assert on
+        Assert.assertTrue(report.getReceived() > 0);
+        Assert.assertEquals(report.getReceived(), report.getRoundTrip().getCount());
+        Assert.assertEquals(OFFSET, report.getOffset().getValueAtPercentile(50), 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRemoteTarget() throws IOException {
+        new SNTPLoadGenerator(new InetSocketAddress(InetAddress.getByAddress(new byte[]{8, 8, 8, 8}), 123));
+    }
+}
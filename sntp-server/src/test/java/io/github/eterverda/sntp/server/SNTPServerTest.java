@@ -0,0 +1,106 @@
+package io.github.eterverda.sntp.server;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import io.github.eterverda.sntp.SNTPClient;
+import io.github.eterverda.sntp.SNTPClientBuilder;
+import io.github.eterverda.sntp.SNTPEngine;
+import io.github.eterverda.sntp.SNTPHosts;
+import io.github.eterverda.sntp.SNTPResponse;
+import io.github.eterverda.sntp.cache.SNTPCache;
+import io.github.eterverda.sntp.cache.SNTPCacheBuilder;
+
+public class SNTPServerTest {
+    private static final long OFFSET = 1000;
+
+    private SNTPServer server;
+
+    @After
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+            server = null;
+        }
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        server = server(cache(OFFSET), 2);
+
+        final SNTPResponse response = client().execute();
+
+        Assert.assertEquals(OFFSET, response.getClockOffset(), 50);
+        Assert.assertEquals(1, awaitResponseCount(1));
+    }
+
+    @Test
+    public void testManyRequests() throws Exception {
+        server = server(cache(OFFSET), 4);
+
+        final List<Future<SNTPResponse>> futures = new ArrayList<>();
+        try (SNTPEngine engine = SNTPClientBuilder.custom().setPort(server.getPort()).setSoTimeout(2000).buildEngine()) {
+            for (int i = 0; i < 100; i++) {
+                futures.add(engine.submit(InetAddress.getLoopbackAddress()));
+            }
+            for (Future<SNTPResponse> future : futures) {
+                Assert.assertEquals(OFFSET, future.get().getClockOffset(), 50);
+            }
+        }
+        Assert.assertEquals(100, awaitResponseCount(100));
+    }
+
+    @Test
+    public void testEmptyCache() throws IOException {
+        server = server(SNTPCacheBuilder.custom().setExpirationInterval(0).build(), 1);
+
+        try {
+            client().execute();
+            Assert.fail();
+        } catch (SocketTimeoutException expected) {
+        }
+        Assert.assertEquals(1, server.getDroppedCount());
+    }
+
+    /**
+     * Server counts response after it is sent so client may see it first.
+     */
+    private long awaitResponseCount(long expected) throws InterruptedException {
+        for (int i = 0; i < 100 && server.getResponseCount() < expected; i++) {
+            Thread.sleep(10);
+        }
+        return server.getResponseCount();
+    }
+
+    private static SNTPCache cache(long offset) {
+        return SNTPCacheBuilder.custom()
+                .setExpirationInterval(Long.MAX_VALUE)
+                .setInitialResponse(SNTPResponse.unflatten(System.currentTimeMillis(), offset, SNTPResponse.UNKNOWN, SNTPResponse.UNKNOWN, 0))
+                .build();
+    }
+
+    private static SNTPServer server(SNTPCache cache, int threads) throws IOException {
+        return SNTPServerBuilder.custom()
+                .setCache(cache)
+                .setAddress(InetAddress.getLoopbackAddress())
+                .setPort(0)
+                .setThreads(threads)
+                .build();
+    }
+
+    private SNTPClient client() {
+        return SNTPClientBuilder.custom()
+                .setHosts(new SNTPHosts(InetAddress.getLoopbackAddress().getHostAddress()))
+                .setPort(server.getPort())
+                .setSoTimeout(500)
+                .build();
+    }
+}
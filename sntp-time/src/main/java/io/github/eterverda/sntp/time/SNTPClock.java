@@ -0,0 +1,101 @@
+package io.github.eterverda.sntp.time;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import io.github.eterverda.sntp.SNTP;
+import io.github.eterverda.sntp.SNTPResponse;
+import io.github.eterverda.sntp.cache.SNTPCache;
+
+/**
+ * {@link Clock} showing global time of response in {@link SNTPCache} so that code built on {@code java.time}
+ * uses SNTP time without changes, e.g. {@code Instant.now(clock)}. Never performs networking: when cache is empty
+ * or expired it falls back to {@link Clock#systemUTC()}.
+ */
+public final class SNTPClock extends Clock {
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final SNTPCache cache;
+    private final ZoneId zone;
+
+    private SNTPClock(SNTPCache cache, ZoneId zone) {
+        this.cache = cache;
+        this.zone = zone;
+    }
+
+    /**
+     * @return clock of cache provided to {@link SNTP#setCache(SNTPCache)} in UTC
+     * @throws IllegalStateException if cache was not set
+     */
+    public static SNTPClock global() {
+        final SNTPCache cache = SNTP.getCache();
+        if (cache == null) {
+            throw new IllegalStateException("cache not set");
+        }
+        return of(cache);
+    }
+
+    /**
+     * @return clock of given cache in UTC
+     */
+    public static SNTPClock of(SNTPCache cache) {
+        return of(cache, ZoneOffset.UTC);
+    }
+
+    public static SNTPClock of(SNTPCache cache, ZoneId zone) {
+        if (cache == null) {
+            throw new NullPointerException("cache == null");
+        }
+        if (zone == null) {
+            throw new NullPointerException("zone == null");
+        }
+        return new SNTPClock(cache, zone);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public SNTPClock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : of(cache, zone);
+    }
+
+    @Override
+    public long millis() {
+        final SNTPResponse response = cache.get();
+        return response != null ? response.currentGlobalTimeMillis() : System.currentTimeMillis();
+    }
+
+    @Override
+    public Instant instant() {
+        final SNTPResponse response = cache.get();
+        if (response == null) {
+            return Instant.now();
+        }
+        final long nanos = response.currentGlobalTimeNanos();
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND), Math.floorMod(nanos, NANOS_PER_SECOND));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof SNTPClock)) {
+            return false;
+        }
+        final SNTPClock other = (SNTPClock) obj;
+        return cache == other.cache && zone.equals(other.zone);
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(cache) ^ zone.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SNTPClock[" + zone + "]";
+    }
+}
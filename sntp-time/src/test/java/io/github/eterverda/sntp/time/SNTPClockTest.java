@@ -0,0 +1,46 @@
+package io.github.eterverda.sntp.time;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import io.github.eterverda.sntp.SNTPResponse;
+import io.github.eterverda.sntp.cache.SNTPCache;
+import io.github.eterverda.sntp.cache.SNTPCacheBuilder;
+
+public class SNTPClockTest {
+    @Test
+    public void testClockShowsGlobalTime() {
+        final long now = System.currentTimeMillis();
+        final SNTPCache cache = SNTPCacheBuilder.custom()
+                .setInitialResponse(SNTPResponse.unflatten(now, 3_600_000, 10, 0, 0))
+                .build();
+        final SNTPClock clock = SNTPClock.of(cache);
+
+        Assert.assertEquals(ZoneOffset.UTC, clock.getZone());
+        Assert.assertEquals(now + 3_600_000, clock.millis(), 1000);
+        Assert.assertEquals(now + 3_600_000, Instant.now(clock).toEpochMilli(), 1000);
+    }
+
+    @Test
+    public void testEmptyCacheFallsBackToSystemClock() {
+        final SNTPClock clock = SNTPClock.of(SNTPCacheBuilder.custom().build());
+
+        Assert.assertEquals(System.currentTimeMillis(), clock.millis(), 1000);
+        Assert.assertEquals(System.currentTimeMillis(), clock.instant().toEpochMilli(), 1000);
+    }
+
+    @Test
+    public void testWithZone() {
+        final SNTPCache cache = SNTPCacheBuilder.custom().build();
+        final SNTPClock clock = SNTPClock.of(cache);
+        final ZoneId zone = ZoneId.of("Europe/Moscow");
+
+        Assert.assertSame(clock, clock.withZone(ZoneOffset.UTC));
+        Assert.assertEquals(zone, clock.withZone(zone).getZone());
+        Assert.assertEquals(SNTPClock.of(cache, zone), clock.withZone(zone));
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.eterverda.sntp;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps addresses returned by other resolver for given time and hands them out in turn.
+ * <p/>
+ * When refresh fails addresses resolved before keep being used for another time to live, so DNS outage
+ * does not turn into SNTP outage and does not add failed lookup to every request.
+ */
+final class CachingSNTPResolver implements SNTPResolver {
+    private final SNTPResolver resolver;
+    private final long ttl;
+    private final SNTPClient.MonotonicClock clock;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttl time to live of resolved addresses in milliseconds, 0 to resolve every time
+     */
+    CachingSNTPResolver(SNTPResolver resolver, long ttl, SNTPClient.MonotonicClock clock) {
+        this.resolver = resolver;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * @return next address of given host, each address of host is returned in turn
+     */
+    InetAddress nextAddress(String host) throws UnknownHostException {
+        final Entry entry = entry(host);
+        final InetAddress[] addresses = entry.addresses;
+        return addresses[(entry.next.getAndIncrement() & Integer.MAX_VALUE) % addresses.length];
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        return entry(host).addresses.clone();
+    }
+
+    private Entry entry(String host) throws UnknownHostException {
+        final Entry entry = entries.get(host);
+        final long now = clock.ticks();
+        if (entry != null && now < entry.expiresAt) {
+            return entry;
+        }
+
+        final InetAddress[] addresses;
+        try {
+            addresses = resolver.resolve(host);
+        } catch (UnknownHostException e) {
+            if (entry == null) {
+                throw e;
+            }
+            final Entry stale = new Entry(entry.addresses, now + ttl, entry.next);
+            entries.put(host, stale);
+            return stale;
+        }
+        if (addresses == null || addresses.length == 0) {
+            throw new UnknownHostException(host);
+        }
+        // keep position so that refresh with same addresses continues rotation
+        final Entry fresh = new Entry(addresses.clone(), now + ttl, entry != null ? entry.next : new AtomicInteger());
+        entries.put(host, fresh);
+        return fresh;
+    }
+
+    private static final class Entry {
+        final InetAddress[] addresses;
+        final long expiresAt;
+        final AtomicInteger next;
+
+        Entry(InetAddress[] addresses, long expiresAt, AtomicInteger next) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+            this.next = next;
+        }
+    }
+}
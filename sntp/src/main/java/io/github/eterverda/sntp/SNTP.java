@@ -1,6 +1,13 @@
 package io.github.eterverda.sntp;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.LongBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.github.eterverda.sntp.cache.SNTPCache;
@@ -10,11 +17,14 @@ public final class SNTP {
     private static final AtomicReference<SNTPClient> CLIENT = new AtomicReference<>();
     private static final AtomicReference<SNTPCache> CACHE = new AtomicReference<>();
 
+    private static final AtomicReference<SNTPFuture> IN_FLIGHT = new AtomicReference<>();
+    private static final AtomicLong COALESCED = new AtomicLong();
+
     private SNTP() {
     }
 
     public static void init() {
-        setClient(SNTPClientBuilder.create());
+        setClient(SNTPClientBuilder.custom().setMonotonicClock(SNTPClient.NANO_TIME_CLOCK).build());
         setCache(SNTPCacheBuilder.create());
     }
 
@@ -58,6 +68,14 @@ public final class SNTP {
         return CACHE.get();
     }
 
+    /**
+     * @return number of calls to {@link #currentTimeMillis()} and {@link #safeCurrentTimeMillis()} that did not
+     * perform network request of their own but waited for one already in flight
+     */
+    public static long getCoalescedRequestCount() {
+        return COALESCED.get();
+    }
+
     /**
      * This method will always perform SNTP request using client provided to {@link #setClient(SNTPClient)}}.
      * If there was {@link SNTPCache} provided to {@link #setCache(SNTPCache)} received response will be cached.
@@ -127,7 +145,7 @@ public final class SNTP {
     /**
      * This method will try to calculate current time on global clock using {@link SNTPCache} provided
      * to {@link #setCache(SNTPCache)}. If there is no cache or cache empty or expired network request will be
-     * performed. Response from network is subject for caching.
+     * performed. Response from network is subject for caching. Concurrent callers share single network request.
      * <p/>
      * May perform networking. Do not call this method on your main event thread!
      *
@@ -138,14 +156,23 @@ public final class SNTP {
      * @see #setCache(SNTPCache)
      */
     public static long currentTimeMillis() throws IOException {
-        final SNTPCache cache = CACHE.get();
-        if (cache != null) {
-            final SNTPResponse response = cache.get();
-            if (response != null) {
-                return response.currentGlobalTimeMillis();
-            }
-        }
-        return currentTimeMillisFromNetwork();
+        return response().currentGlobalTimeMillis();
+    }
+
+    /**
+     * Same as {@link #currentTimeMillis()} in nanoseconds since epoch. Resolution is nanoseconds if client has
+     * {@link SNTPClient.NanoMonotonicClock}, e.g. {@link SNTPClient#NANO_TIME_CLOCK}. Does not allocate when
+     * response is served from {@link SNTPCache} kept in memory.
+     * <p/>
+     * May perform networking. Do not call this method on your main event thread!
+     *
+     * @return current time on world clock in nanoseconds
+     * @throws IOException           if IO error occurs
+     * @throws IllegalStateException if {@link #setClient(SNTPClient)} was not called and cache is empty or expired
+     * @see #currentTimeMillis()
+     */
+    public static long currentTimeNanos() throws IOException {
+        return response().currentGlobalTimeNanos();
     }
 
     /**
@@ -156,24 +183,217 @@ public final class SNTP {
      * @return current time on world (or maybe local) clock
      */
     public static long safeCurrentTimeMillis() {
+        final SNTPResponse response = safeResponse();
+        return response != null ? response.currentGlobalTimeMillis() : System.currentTimeMillis();
+    }
+
+    /**
+     * Same as {@link #currentTimeNanos()} but never throws. Will fallback to {@link System#currentTimeMillis()}
+     * in nanoseconds.
+     * <p/>
+     * May perform networking. Do not call this method on your main event thread!
+     *
+     * @return current time on world (or maybe local) clock in nanoseconds
+     */
+    public static long safeCurrentTimeNanos() {
+        final SNTPResponse response = safeResponse();
+        return response != null ? response.currentGlobalTimeNanos() : System.currentTimeMillis() * 1000000L;
+    }
+
+    /**
+     * Converts local times in given range of array to global times in place against single response, so all of
+     * them get same offset even if cache is refreshed concurrently. Same as {@link SNTPResponse#globalTimeMillis(long)}
+     * for each element.
+     * <p/>
+     * May perform networking. Do not call this method on your main event thread!
+     *
+     * @throws IOException           if IO error occurs
+     * @throws IllegalStateException if {@link #setClient(SNTPClient)} was not called and cache is empty or expired
+     * @see SNTPResponse#globalTimeMillis(long[], int, int)
+     */
+    public static void toGlobalTimeMillis(long[] localTimesMillis, int offset, int length) throws IOException {
+        response().globalTimeMillis(localTimesMillis, offset, length);
+    }
+
+    /**
+     * Same as {@link #toGlobalTimeMillis(long[], int, int)} for local times between position and limit of buffer.
+     *
+     * @see SNTPResponse#globalTimeMillis(LongBuffer)
+     */
+    public static void toGlobalTimeMillis(LongBuffer localTimesMillis) throws IOException {
+        response().globalTimeMillis(localTimesMillis);
+    }
+
+    private static SNTPResponse response() throws IOException {
         final SNTPCache cache = CACHE.get();
         if (cache != null) {
             final SNTPResponse response = cache.get();
             if (response != null) {
-                return response.currentGlobalTimeMillis();
+                return response;
+            }
+        }
+        final SNTPClient client = CLIENT.get();
+        if (client == null) {
+            throw new IllegalStateException("client not set");
+        }
+        return fetch(client, cache);
+    }
+
+    private static SNTPResponse safeResponse() {
+        final SNTPCache cache = CACHE.get();
+        if (cache != null) {
+            final SNTPResponse response = cache.get();
+            if (response != null) {
+                return response;
             }
         }
         final SNTPClient client = CLIENT.get();
         if (client != null) {
             try {
-                final SNTPResponse response = client.execute();
+                return fetch(client, cache);
+            } catch (IOException | SecurityException ignore) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Performs network request and caches response unless there is request in flight already.
+     * In latter case waits for it and shares its result.
+     */
+    static SNTPResponse fetch(SNTPClient client, SNTPCache cache) throws IOException {
+        final SNTPFuture future = new SNTPFuture();
+        while (!IN_FLIGHT.compareAndSet(null, future)) {
+            final SNTPFuture inFlight = IN_FLIGHT.get();
+            if (inFlight != null) {
+                COALESCED.incrementAndGet();
+                return await(inFlight);
+            }
+        }
+        try {
+            // request in flight could complete right before we started ours
+            if (cache != null) {
+                final SNTPResponse response = cache.get();
+                if (response != null) {
+                    future.onResponse(response);
+                    return response;
+                }
+            }
+            final SNTPResponse response = client.execute();
+            if (cache != null) {
+                cache.put(response);
+            }
+            future.onResponse(response);
+            return response;
+
+        } catch (IOException e) {
+            future.onFailure(e);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            future.onFailure(new IOException(e));
+            throw e;
+        } finally {
+            IN_FLIGHT.compareAndSet(future, null);
+        }
+    }
+
+    private static SNTPResponse await(SNTPFuture future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw (IOException) e.getCause();
+        }
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #currentTimeMillis()}. If there is valid response in {@link SNTPCache}
+     * returned future is already done, otherwise network request is performed with
+     * {@link SNTPClient#executeAsync(SNTPCallback)} and its response is cached.
+     * <p/>
+     * Time is calculated when {@link Future#get()} is called so it is current at that moment.
+     * <p/>
+     * You can call this method on your main event thread if you don't mind some file IO with persistent cache.
+     *
+     * @return future of current time on world clock failing with {@link IOException} as a cause
+     * @throws IllegalStateException if {@link #setClient(SNTPClient)} was not called and cache is empty or expired
+     */
+    public static Future<Long> currentTimeMillisAsync() {
+        final SNTPFuture future = new SNTPFuture();
+        currentTimeMillisAsync(future);
+        return new GlobalTimeFuture(future);
+    }
+
+    /**
+     * Same as {@link #currentTimeMillisAsync()} but delivers response to callback. Callback is called on calling
+     * thread if response is cached.
+     *
+     * @throws IllegalStateException if {@link #setClient(SNTPClient)} was not called and cache is empty or expired
+     */
+    public static void currentTimeMillisAsync(final SNTPCallback callback) {
+        if (callback == null) {
+            throw new NullPointerException("callback == null");
+        }
+        final SNTPCache cache = CACHE.get();
+        if (cache != null) {
+            final SNTPResponse response = cache.get();
+            if (response != null) {
+                callback.onResponse(response);
+                return;
+            }
+        }
+        final SNTPClient client = CLIENT.get();
+        if (client == null) {
+            throw new IllegalStateException("client not set");
+        }
+        client.executeAsync(new SNTPCallback() {
+            @Override
+            public void onResponse(SNTPResponse response) {
                 if (cache != null) {
                     cache.put(response);
                 }
-                return response.currentGlobalTimeMillis();
-            } catch (IOException | SecurityException ignore) {
+                callback.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(IOException exception) {
+                callback.onFailure(exception);
             }
+        });
+    }
+
+    private static final class GlobalTimeFuture implements Future<Long> {
+        private final Future<SNTPResponse> future;
+
+        GlobalTimeFuture(Future<SNTPResponse> future) {
+            this.future = future;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return future.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        @Override
+        public Long get() throws InterruptedException, ExecutionException {
+            return future.get().currentGlobalTimeMillis();
+        }
+
+        @Override
+        public Long get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return future.get(timeout, unit).currentGlobalTimeMillis();
         }
-        return System.currentTimeMillis();
     }
 }
@@ -0,0 +1,14 @@
+package io.github.eterverda.sntp;
+
+import java.io.IOException;
+
+/**
+ * Receives result of asynchronous SNTP request. Exactly one of the methods is called once per request.
+ *
+ * @see SNTPEngine
+ */
+public interface SNTPCallback {
+    void onResponse(SNTPResponse response);
+
+    void onFailure(IOException exception);
+}
@@ -1,76 +1,227 @@
 package io.github.eterverda.sntp;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * @see SNTPClientBuilder
  */
 public final class SNTPClient {
-    // all time calculations in seconds
-    private static final long DAYS = 24L * 60L * 60L;
-    private static final long YEARS = 365L * DAYS;
-    // there were 17 leap days between 1900 and 1970
-    private static final long OFFSET_1900_TO_1970 = (70L * YEARS) + (17L * DAYS);
-
-    private static final int RECEIVE_TIME_OFFSET = 32;
-    private static final int TRANSMIT_TIME_OFFSET = 40;
-    private static final int NTP_PACKET_SIZE = 48;
-
-    private static final int NTP_MODE_CLIENT = 3;
-    private static final int NTP_VERSION = 3;
-
-    private static final int NTP_PORT = 123;
+    /**
+     * Hedge delay meaning 90th percentile of recent round-trip delays of host.
+     *
+     * @see SNTPClientBuilder#setHedgeDelay(int)
+     */
+    public static final int HEDGE_AUTO = -1;
 
     private final SNTPHosts hosts;
+    private final int port;
     private final int timeout;
     private final MonotonicClock clock;
-
-    SNTPClient(SNTPHosts hosts, int timeout, MonotonicClock clock) {
+    private final int parallelism;
+    private final Executor executor;
+    private final SNTPListener listener;
+    private final CachingSNTPResolver resolver;
+    private final int hedgeDelay;
+    private final SNTPHedgeBudget hedgeBudget;
+
+    SNTPClient(SNTPHosts hosts, int port, int timeout, MonotonicClock clock, int parallelism, Executor executor, SNTPListener listener,
+               CachingSNTPResolver resolver, int hedgeDelay, SNTPHedgeBudget hedgeBudget) {
         this.hosts = hosts;
+        this.port = port;
         this.timeout = timeout;
         this.clock = clock;
+        this.parallelism = parallelism;
+        this.executor = executor;
+        this.listener = listener;
+        this.resolver = resolver;
+        this.hedgeDelay = hedgeDelay;
+        this.hedgeBudget = hedgeBudget;
+    }
+
+    /**
+     * Same as {@link #execute()} but performed on executor provided to {@link SNTPClientBuilder#setExecutor(Executor)}
+     * or on shared pool of daemon threads.
+     *
+     * @return future completed with response or with {@link IOException} as a cause
+     */
+    public Future<SNTPResponse> executeAsync() {
+        final SNTPFuture future = new SNTPFuture();
+        executeAsync(future);
+        return future;
+    }
+
+    /**
+     * Same as {@link #execute()} but performed on executor provided to {@link SNTPClientBuilder#setExecutor(Executor)}
+     * or on shared pool of daemon threads.
+     *
+     * @param callback receives response or failure on executor thread
+     */
+    public void executeAsync(final SNTPCallback callback) {
+        if (callback == null) {
+            throw new NullPointerException("callback == null");
+        }
+        final Executor executor = this.executor != null ? this.executor : DefaultExecutor.INSTANCE;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final SNTPResponse response;
+                try {
+                    response = execute();
+                } catch (IOException e) {
+                    callback.onFailure(e);
+                    return;
+                } catch (SecurityException e) {
+                    callback.onFailure(new IOException(e));
+                    return;
+                }
+                callback.onResponse(response);
+            }
+        });
     }
 
     /**
      * Executes SNTP response to {@link SNTPHosts#nextHost()} and returns result.
+     * <p/>
+     * If client was built with {@link SNTPClientBuilder#setParallelism(int)} greater than one requests are sent
+     * to that many hosts at once and response with the lowest round-trip delay is returned. Once there is a reply
+     * client waits for others only while they still can have lower round-trip delay.
+     * <p/>
+     * If client was built with {@link SNTPClientBuilder#setHedgeDelay(int)} and there is no reply within that delay
+     * one more request is sent to the next host and whichever reply comes first is returned.
      *
      * @return response from SNTP server
      * @throws IOException if IO Error occurs
      */
     public SNTPResponse execute() throws IOException {
+        if (parallelism > 1 || hedgeDelay != 0) {
+            return executeParallel(parallelism, 0);
+        }
         final String host = hosts.nextHost();
-        final InetAddress address = InetAddress.getByName(host);
+        return execute(host, hosts.getTimeout(host, timeout));
+    }
+
+    /**
+     * Same as {@link #execute()} but on failure tries other hosts of {@link SNTPHosts} one after another until
+     * response is received or given time budget is spent.
+     * <p/>
+     * Each attempt waits for as long as timeout of its host ({@link SNTPHosts#getTimeout(String, int)}) allows but
+     * not more than half of remaining budget, so there is always time left for one more attempt. Once half of
+     * remaining budget becomes shorter than minimal host timeout the last attempt gets all of it.
+     *
+     * @param budget total time in milliseconds
+     * @return response from SNTP server
+     * @throws IOException failure of the last attempt or {@link SocketTimeoutException} if budget was spent
+     */
+    public SNTPResponse execute(long budget) throws IOException {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("budget <= 0");
+        }
+        final long deadline = NANO_TIME_CLOCK.ticks() + budget;
+        final boolean parallel = parallelism > 1 || hedgeDelay != 0;
+        IOException failure = null;
+        String[] pass = new String[0];
+        int next = 0;
+        boolean timedOut = false;
+        for (long remaining = budget; remaining > 0; remaining = deadline - NANO_TIME_CLOCK.ticks()) {
+            if (parallel || next == pass.length) {
+                // hosts failing at once, e.g. unresolvable ones, are not worth spinning on till deadline
+                if (failure != null && !timedOut) {
+                    throw failure;
+                }
+                pass = parallel ? pass : hosts.nextHosts(hosts.size());
+                next = 0;
+                timedOut = false;
+            }
+            try {
+                if (parallel) {
+                    return executeParallel(parallelism, attemptTimeout(0, remaining));
+                }
+                final String host = pass[next++];
+                return execute(host, attemptTimeout(hosts.getTimeout(host, timeout), remaining));
+            } catch (SocketTimeoutException e) {
+                failure = e;
+                timedOut = true;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure == null || timedOut) {
+            throw new SocketTimeoutException("no response in " + budget + " ms");
+        }
+        throw failure;
+    }
+
+    /**
+     * @param timeout timeout of host, 0 for infinite
+     * @return timeout of attempt not longer than half of remaining budget unless it is too short to split
+     */
+    private static int attemptTimeout(int timeout, long remaining) {
+        final long share = remaining / 2 >= SNTPHosts.MIN_TIMEOUT ? remaining / 2 : remaining;
+        return (int) Math.min(timeout == 0 ? share : Math.min(timeout, share), Integer.MAX_VALUE);
+    }
+
+    private SNTPResponse execute(String host, int timeout) throws IOException {
+        checkEmbargo(host);
+        if (listener != null) {
+            listener.onRequestStart(host);
+        }
+        final SNTPResponse response;
+        try {
+            response = send(host, timeout);
+        } catch (IOException e) {
+            reportFailure(host, e);
+            throw e;
+        }
+        hosts.reportResponse(host, response.getRoundTripDelay());
+        if (listener != null) {
+            listener.onRequestEnd(host, response);
+        }
+        return response;
+    }
+
+    private SNTPResponse send(String host, int timeout) throws IOException {
+        final InetAddress address = resolver.nextAddress(host);
 
         try (DatagramSocket socket = new DatagramSocket()) {
             socket.setSoTimeout(timeout);
 
-            socket.connect(address, NTP_PORT);
+            socket.connect(address, port);
 
-            final byte[] buffer = new byte[NTP_PACKET_SIZE];
+            final byte[] buffer = new byte[SNTPPacket.SIZE];
             final DatagramPacket packet = new DatagramPacket(buffer, 0, buffer.length);
-            writeMode(buffer);
+            SNTPPacket.writeMode(buffer);
 
             final long requestTime = System.currentTimeMillis();
-            final long requestTicks = clock != null ? clock.ticks() : requestTime;
+            final long requestNanoTicks = nanoTicks(clock);
 
-            writeTimestamp(requestTime, buffer, TRANSMIT_TIME_OFFSET);
+            SNTPPacket.writeTimestamp(requestTime, buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
+            final long originate = SNTPPacket.readUint64(buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
 
             socket.send(packet);
             socket.receive(packet);
 
-            final long responseTicks = clock != null ? clock.ticks() : System.currentTimeMillis();
-            final long responseTime = clock != null ? requestTime + (responseTicks - requestTicks) : responseTicks;
+            final long responseNanoTicks = nanoTicks(clock);
+            final long responseTicks = clock != null ? clock.ticks() : 0;
 
             socket.disconnect();
 
-            final long receiveTime = readTimestamp(buffer, RECEIVE_TIME_OFFSET);
-            final long transmitTime = readTimestamp(buffer, TRANSMIT_TIME_OFFSET);
-
-            return SNTPResponse.create(requestTime, receiveTime, transmitTime, responseTime);
+            return readResponse(host, buffer, originate, requestTime, responseNanoTicks - requestNanoTicks, responseTicks, responseNanoTicks);
 
         } catch (SecurityException sex) {
             // Some shitty devices throw SecurityException caused by GaiException
@@ -100,57 +251,357 @@ public final class SNTPClient {
         }
     }
 
-    private static void writeMode(byte[] buffer) {
-        final int ntpVersion = NTP_VERSION;
-        final int mode = NTP_MODE_CLIENT;
-        buffer[0] = (ntpVersion << 3) | mode;
+    /**
+     * @param limit upper bound of timeout in milliseconds, 0 for none
+     */
+    private SNTPResponse executeParallel(int count, int limit) throws IOException {
+        final boolean hedging = hedgeDelay != 0;
+        final String[] targets = hosts.nextHosts(hedging ? count + 1 : count);
+        final int initial = Math.min(count, targets.length);
+        // with the only host hedge goes to the same name which resolves to next address of pool
+        String hedgeHost = hedging ? targets[targets.length > count ? count : 0] : null;
+        if (hedging) {
+            hedgeBudget.onRequest();
+        }
+
+        final Selector selector = Selector.open();
+        SNTPResponse best = null;
+        try {
+            IOException failure = null;
+            int pending = 0;
+            int timeout = 0;
+            for (int i = 0; i < initial; i++) {
+                final IOException e = start(selector, targets[i]);
+                if (e == null) {
+                    pending++;
+                    timeout = Math.max(timeout, hosts.getTimeout(targets[i], this.timeout));
+                } else {
+                    failure = e;
+                }
+            }
+            if (pending == 0) {
+                throw failure;
+            }
+            if (limit != 0) {
+                timeout = timeout == 0 ? limit : Math.min(timeout, limit);
+            }
+
+            final long startTime = System.currentTimeMillis();
+            final long hedgeTime = hedging ? hedgeTime(targets[0], startTime) : Long.MAX_VALUE;
+            int sent = pending;
+            long bestDelay = Long.MAX_VALUE;
+
+            // Requests are not sent at once since each of them waits for resolver, so reply arriving later can still
+            // have lower round trip. Wait for pending replies only while they can beat the best one.
+            while (pending > 0) {
+                final long now = System.currentTimeMillis();
+                final long remaining = timeout == 0 ? 0 : startTime + timeout - now;
+                if (timeout != 0 && remaining <= 0) {
+                    break;
+                }
+                final long wait;
+                if (best != null) {
+                    final long left = cutoff(selector, bestDelay) - nanoTicks(clock);
+                    if (left <= 0) {
+                        break;
+                    }
+                    final long leftMillis = (left + 999999) / 1000000;
+                    wait = remaining == 0 ? leftMillis : Math.min(remaining, leftMillis);
+                } else {
+                    if (hedgeHost != null && now >= hedgeTime) {
+                        if (hedgeBudget.tryAcquire() && start(selector, hedgeHost) == null) {
+                            pending++;
+                            sent++;
+                        }
+                        hedgeHost = null;
+                    }
+                    wait = hedgeHost == null || hedgeTime == Long.MAX_VALUE ? remaining
+                            : remaining == 0 ? hedgeTime - now : Math.min(remaining, hedgeTime - now);
+                }
+
+                selector.select(wait);
+                final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    final SelectionKey key = iterator.next();
+                    iterator.remove();
+
+                    final SNTPResponse response;
+                    try {
+                        response = receive(key);
+                    } catch (IOException e) {
+                        failure = e;
+                        pending--;
+                        continue;
+                    }
+                    if (response == null) {
+                        continue;
+                    }
+                    pending--;
+                    if (response.getRoundTripDelayNanos() < bestDelay) {
+                        best = response;
+                        bestDelay = response.getRoundTripDelayNanos();
+                    }
+                }
+            }
+            if (best == null && pending == 0) {
+                throw failure; // every host failed before timeout
+            }
+            if (best == null) {
+                throw new SocketTimeoutException("no response from " + sent + " hosts in " + timeout + " ms");
+            }
+            return best;
+
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.isValid()) {
+                    abandon((Exchange) key.attachment(), best == null);
+                }
+                key.channel().close();
+            }
+            selector.close();
+        }
+    }
+
+    /**
+     * @return nano ticks after which none of pending replies can have round trip lower than given one
+     */
+    private static long cutoff(Selector selector, long roundTripNanos) {
+        long cutoff = Long.MIN_VALUE;
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid()) {
+                cutoff = Math.max(cutoff, ((Exchange) key.attachment()).requestNanoTicks + roundTripNanos);
+            }
+        }
+        return cutoff;
+    }
+
+    /**
+     * @return time to send hedged request at or {@link Long#MAX_VALUE} if delay is automatic and round-trip
+     * delays of host are not known yet
+     */
+    private long hedgeTime(String host, long startTime) {
+        if (hedgeDelay != HEDGE_AUTO) {
+            return startTime + hedgeDelay;
+        }
+        final long delay = hosts.getRoundTripPercentile(host, 90);
+        return delay < 0 ? Long.MAX_VALUE : startTime + Math.max(delay, 1);
+    }
+
+    /**
+     * Sends request to host reporting start and failure of request.
+     *
+     * @return {@code null} if request was sent, failure otherwise
+     */
+    private IOException start(Selector selector, String host) {
+        try {
+            checkEmbargo(host);
+        } catch (SNTPKissOfDeathException e) {
+            return e;
+        }
+        if (listener != null) {
+            listener.onRequestStart(host);
+        }
+        try {
+            send(selector, host);
+            return null;
+        } catch (IOException e) {
+            reportFailure(host, e);
+            return e;
+        }
     }
 
-    private static long readTimestamp(byte[] buffer, int offset) {
-        final long ntpSeconds = readUint32(buffer, offset);
-        final long ntpFraction = readUint32(buffer, offset + 4);
+    /**
+     * @throws SNTPKissOfDeathException if host asked not to be queried now
+     */
+    private void checkEmbargo(String host) throws SNTPKissOfDeathException {
+        final String code = hosts.getEmbargo(host);
+        if (code != null) {
+            throw new SNTPKissOfDeathException(host, code);
+        }
+    }
 
-        final long seconds = ntpSeconds - OFFSET_1900_TO_1970;
-        final long milliseconds = ntpFraction * 1000L / 0x100000000L;
+    private void reportFailure(String host, IOException e) {
+        if (e instanceof SNTPKissOfDeathException) {
+            final SNTPKissOfDeathException kod = (SNTPKissOfDeathException) e;
+            hosts.reportKissOfDeath(host, kod.getCode(), kod.pollInterval);
+        } else {
+            hosts.reportFailure(host);
+        }
+        if (listener != null) {
+            listener.onRequestFailure(host, e);
+        }
+    }
 
-        return seconds * 1000 + milliseconds;
+    private void abandon(Exchange exchange, boolean timedOut) {
+        if (timedOut) {
+            hosts.reportFailure(exchange.host);
+        }
+        if (listener != null) {
+            listener.onRequestFailure(exchange.host, timedOut
+                    ? new SocketTimeoutException("no response in " + timeout + " ms")
+                    : new InterruptedIOException("abandoned since other host replied first"));
+        }
     }
 
-    private static long readUint32(byte[] buf, int off) {
-        long result = 0;
-        result |= (long) readUint8(buf, off) << 24;
-        result |= (long) readUint8(buf, off + 1) << 16;
-        result |= (long) readUint8(buf, off + 2) << 8;
-        result |= (long) readUint8(buf, off + 3);
+    private void send(Selector selector, String host) throws IOException {
+        final InetAddress address = resolver.nextAddress(host);
+        final DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.connect(new InetSocketAddress(address, port));
+
+            final byte[] buffer = new byte[SNTPPacket.SIZE];
+            SNTPPacket.writeMode(buffer);
+
+            final Exchange exchange = new Exchange(host, buffer);
+            exchange.requestTime = System.currentTimeMillis();
+            exchange.requestNanoTicks = nanoTicks(clock);
+
+            SNTPPacket.writeTimestamp(exchange.requestTime, buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
+            exchange.originate = SNTPPacket.readUint64(buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
 
-        return result;
+            channel.write(ByteBuffer.wrap(buffer));
+            channel.register(selector, SelectionKey.OP_READ, exchange);
+
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
     }
 
-    private static int readUint8(byte[] buf, int off) {
-        final byte b = buf[off];
-        return (b & 0x80) == 0x80 ? (b & 0x7F) + 0x80 : b;
+    /**
+     * @return response or {@code null} if there was no complete packet
+     * @throws IOException if request failed, failure is already reported
+     */
+    private SNTPResponse receive(SelectionKey key) throws IOException {
+        final Exchange exchange = (Exchange) key.attachment();
+        final DatagramChannel channel = (DatagramChannel) key.channel();
+
+        final int length;
+        try {
+            length = channel.read(ByteBuffer.wrap(exchange.buffer));
+        } catch (IOException e) {
+            // e.g. ICMP port unreachable
+            key.cancel();
+            reportFailure(exchange.host, e);
+            throw e;
+        }
+        if (length < SNTPPacket.SIZE) {
+            return null;
+        }
+        key.cancel();
+
+        final long responseNanoTicks = nanoTicks(clock);
+        final long responseTicks = clock != null ? clock.ticks() : 0;
+
+        final SNTPResponse response;
+        try {
+            response = readResponse(exchange.host, exchange.buffer, exchange.originate, exchange.requestTime,
+                    responseNanoTicks - exchange.requestNanoTicks, responseTicks, responseNanoTicks);
+        } catch (IOException e) {
+            reportFailure(exchange.host, e);
+            throw e;
+        }
+        hosts.reportResponse(exchange.host, response.getRoundTripDelay());
+        if (listener != null) {
+            listener.onRequestEnd(exchange.host, response);
+        }
+        return response;
     }
 
-    private static void writeTimestamp(long time, byte[] buf, int off) {
-        final long seconds = time / 1000L;
-        final long milliseconds = time - seconds * 1000L;
+    private SNTPResponse readResponse(String host, byte[] buffer, long originate, long requestTime, long elapsedNanos,
+                                      long responseTicks, long responseNanoTicks) throws IOException {
+        final SNTPHeader header = checkReply(host, buffer, originate);
+        if (header.poll > SNTPHeader.REQUEST_POLL) {
+            hosts.reportPollInterval(host, header.getPollInterval());
+        }
+
+        final long receiveTime = SNTPPacket.readTimestampNanos(buffer, SNTPPacket.RECEIVE_TIME_OFFSET);
+        final long transmitTime = SNTPPacket.readTimestampNanos(buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
 
-        final long ntpSeconds = seconds + OFFSET_1900_TO_1970;
-        final long ntpFraction = milliseconds * 0x100000000L / 1000L;
-        final long ntpFractionPlusRandom = ntpFraction | (byte) (Math.random() * 0x100);
+        return SNTPResponse.create(requestTime, elapsedNanos, receiveTime, transmitTime, header.rootDispersion, clock, responseTicks, responseNanoTicks);
+    }
 
-        writeUint32(ntpSeconds, buf, off);
-        writeUint32(ntpFractionPlusRandom, buf, off + 4);
+    /**
+     * Round trip is measured with nanosecond resolution even if clock has only millisecond ticks.
+     */
+    static long nanoTicks(MonotonicClock clock) {
+        return clock instanceof NanoMonotonicClock ? ((NanoMonotonicClock) clock).nanoTicks() : System.nanoTime();
     }
 
-    private static void writeUint32(long val, byte[] buf, int off) {
-        buf[off] = (byte) (val >> 24);
-        buf[off + 1] = (byte) (val >> 16);
-        buf[off + 2] = (byte) (val >> 8);
-        buf[off + 3] = (byte) val;
+    /**
+     * Rejects replies that must not be used as time samples, RFC 4330 section 5.
+     *
+     * @param originate transmit timestamp of request as sent
+     * @return header of reply
+     * @throws SNTPKissOfDeathException if reply is Kiss-o'-Death
+     * @throws ProtocolException if reply is not a server reply to this request or server is not synchronized
+     */
+    static SNTPHeader checkReply(String host, byte[] buffer, long originate) throws IOException {
+        final SNTPHeader header = SNTPHeader.read(buffer);
+        if (header.mode != SNTPPacket.MODE_SERVER) {
+            throw new ProtocolException(host + " replied with mode " + header.mode);
+        }
+        if (header.stratum == 0) {
+            throw new SNTPKissOfDeathException(host, header.getReferenceCode(), header.getPollInterval());
+        }
+        if (header.leap == SNTPHeader.LEAP_ALARM || header.stratum > SNTPHeader.MAX_STRATUM) {
+            throw new ProtocolException(host + " is not synchronized");
+        }
+        if (SNTPPacket.readUint64(buffer, SNTPPacket.ORIGINATE_TIME_OFFSET) != originate) {
+            throw new ProtocolException(host + " replied to other request");
+        }
+        if (SNTPPacket.readUint64(buffer, SNTPPacket.TRANSMIT_TIME_OFFSET) == 0) {
+            throw new ProtocolException(host + " replied without transmit timestamp");
+        }
+        return header;
     }
 
+    /**
+     * Uses {@link System#nanoTime()} so it is immune to wall clock changes. Note that on Android it does not count
+     * time spent in deep sleep, use {@code AndroidSNTPClientFactory} there.
+     */
+    public static final MonotonicClock NANO_TIME_CLOCK = new NanoMonotonicClock() {
+        @Override
+        public long ticks() {
+            return System.nanoTime() / 1_000_000L;
+        }
+
+        @Override
+        public long nanoTicks() {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * Millisecond ticks that are not affected by wall clock changes.
+     */
     public interface MonotonicClock {
         long ticks();
     }
+
+    /**
+     * Monotonic clock that also has nanosecond ticks, e.g. for {@link SNTPResponse#currentGlobalTimeNanos()}.
+     * Nanosecond ticks must advance at same rate as {@link #ticks()} but need not have same origin.
+     */
+    public interface NanoMonotonicClock extends MonotonicClock {
+        long nanoTicks();
+    }
+
+    private static final class DefaultExecutor {
+        static final ExecutorService INSTANCE = SNTPThreads.newExecutor("SNTPClient");
+    }
+
+    private static final class Exchange {
+        final String host;
+        final byte[] buffer;
+        long requestTime;
+        long requestNanoTicks;
+        long originate;
+
+        Exchange(String host, byte[] buffer) {
+            this.host = host;
+            this.buffer = buffer;
+        }
+    }
 }
@@ -1,11 +1,24 @@
 package io.github.eterverda.sntp;
 
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
 public final class SNTPClientBuilder {
     public static final int DEFAULT_SOCKET_TIMEOUT = 4_000;
+    public static final long DEFAULT_RESOLVER_TTL = 5 * 60 * 1000;
+    public static final double DEFAULT_HEDGE_BUDGET = 0.1;
 
     private int timeout = DEFAULT_SOCKET_TIMEOUT;
     private SNTPHosts hosts = SNTPHosts.GLOBAL;
+    private int port = SNTPPacket.PORT;
     private SNTPClient.MonotonicClock clock;
+    private int parallelism = 1;
+    private Executor executor;
+    private SNTPListener listener;
+    private SNTPResolver resolver = SNTPResolver.SYSTEM;
+    private long resolverTtl = DEFAULT_RESOLVER_TTL;
+    private int hedgeDelay;
+    private double hedgeBudget = DEFAULT_HEDGE_BUDGET;
 
     private SNTPClientBuilder() {
     }
@@ -31,6 +44,21 @@ public final class SNTPClientBuilder {
         return this;
     }
 
+    /**
+     * @param port server port, standard NTP port 123 by default
+     */
+    public SNTPClientBuilder setPort(int port) {
+        if (port < 1 || port > 0xffff) {
+            throw new IllegalArgumentException("port out of range: " + port);
+        }
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * @param timeout socket timeout in milliseconds, 0 for infinite. Hosts with enough responses get
+     *                shorter timeouts, see {@link SNTPHosts#getTimeout(String, int)}
+     */
     public SNTPClientBuilder setSoTimeout(int timeout) {
         if (timeout < 0) {
             throw new IllegalArgumentException("timeout < 0");
@@ -39,7 +67,95 @@ public final class SNTPClientBuilder {
         return this;
     }
 
+    /**
+     * @param parallelism number of hosts queried at once, response with the lowest round-trip delay wins
+     */
+    public SNTPClientBuilder setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism < 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param executor executor for {@link SNTPClient#executeAsync()} or {@code null} for shared pool of daemon threads
+     */
+    public SNTPClientBuilder setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * @param listener observer of requests, e.g. {@link SNTPMetrics}, or {@code null} for none
+     */
+    public SNTPClientBuilder setListener(SNTPListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * @param resolver resolver of host names, {@link SNTPResolver#SYSTEM} by default
+     */
+    public SNTPClientBuilder setResolver(SNTPResolver resolver) {
+        if (resolver == null) {
+            throw new IllegalArgumentException("resolver == null");
+        }
+        this.resolver = resolver;
+        return this;
+    }
+
+    /**
+     * @param ttl time in milliseconds resolved addresses are used for, 0 to resolve on every request
+     */
+    public SNTPClientBuilder setResolverTtl(long ttl) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("ttl < 0");
+        }
+        this.resolverTtl = ttl;
+        return this;
+    }
+
+    /**
+     * @param delay time in milliseconds after which request is hedged by one more request to the next host,
+     *              {@link SNTPClient#HEDGE_AUTO} for 90th percentile of recent round-trip delays of host
+     *              (no hedging until it is known) or 0 for no hedging which is default
+     * @see #setHedgeBudget(double)
+     */
+    public SNTPClientBuilder setHedgeDelay(int delay) {
+        if (delay < 0 && delay != SNTPClient.HEDGE_AUTO) {
+            throw new IllegalArgumentException("delay < 0");
+        }
+        this.hedgeDelay = delay;
+        return this;
+    }
+
+    /**
+     * @param budget maximum ratio of hedged requests to all requests in the long run, from 0 to 1,
+     *               {@link #DEFAULT_HEDGE_BUDGET} by default. Short bursts of up to
+     *               10 hedges are allowed above that
+     */
+    public SNTPClientBuilder setHedgeBudget(double budget) {
+        if (!(budget >= 0 && budget <= 1)) {
+            throw new IllegalArgumentException("budget out of range: " + budget);
+        }
+        this.hedgeBudget = budget;
+        return this;
+    }
+
     public SNTPClient build() {
-        return new SNTPClient(hosts, timeout, clock);
+        final CachingSNTPResolver resolver = new CachingSNTPResolver(this.resolver, resolverTtl, SNTPClient.NANO_TIME_CLOCK);
+        return new SNTPClient(hosts, port, timeout, clock, parallelism, executor, listener,
+                resolver, hedgeDelay, new SNTPHedgeBudget(hedgeBudget));
+    }
+
+    /**
+     * Starts new {@link SNTPEngine} using port, timeout, monotonic clock and listener of this builder.
+     * Hosts, resolver, parallelism and hedging are ignored since engine requests are addressed explicitly.
+     *
+     * @throws IOException if channel cannot be opened
+     */
+    public SNTPEngine buildEngine() throws IOException {
+        return new SNTPEngine(port, timeout, clock, listener);
     }
 }
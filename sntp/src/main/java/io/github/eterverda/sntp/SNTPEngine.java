@@ -0,0 +1,347 @@
+package io.github.eterverda.sntp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+
+/**
+ * Executes many SNTP requests at once using single unconnected {@link DatagramChannel} and single I/O thread.
+ * Replies are matched to requests by originate timestamp echoed by server. Kiss-o'-Death and replies of
+ * unsynchronized servers fail requests but, unlike {@link SNTPClient}, engine does not keep such servers away.
+ * <p/>
+ * Callbacks are called on I/O thread and must not block. Exception thrown by callback goes to uncaught exception
+ * handler of I/O thread, other requests are not affected.
+ *
+ * @see SNTPClientBuilder#buildEngine()
+ */
+public final class SNTPEngine implements Closeable {
+    private final int port;
+    private final int timeout;
+    private final SNTPClient.MonotonicClock clock;
+    private final SNTPListener listener;
+
+    private final Selector selector;
+    private final DatagramChannel channel;
+    private final SelectionKey key;
+    private final Thread thread;
+
+    private final Queue<Request> submitted = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    // accessed on I/O thread only
+    private final ArrayDeque<Request> backlog = new ArrayDeque<>();
+    private final LinkedHashMap<Long, Request> inFlight = new LinkedHashMap<>();
+    private final byte[] buffer = new byte[SNTPPacket.SIZE];
+    private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    private int sequence;
+
+    SNTPEngine(int port, int timeout, SNTPClient.MonotonicClock clock, SNTPListener listener) throws IOException {
+        this.port = port;
+        this.timeout = timeout;
+        this.clock = clock;
+        this.listener = listener;
+
+        selector = Selector.open();
+        try {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().bind(null);
+            key = channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            selector.close();
+            throw e;
+        }
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "SNTPEngine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Resolves host on calling thread and submits request to it.
+     *
+     * @return future completed with response or with {@link IOException} as a cause
+     * @throws IOException if host cannot be resolved
+     */
+    public Future<SNTPResponse> submit(String host) throws IOException {
+        return submit(InetAddress.getByName(host));
+    }
+
+    public Future<SNTPResponse> submit(InetAddress address) {
+        final SNTPFuture future = new SNTPFuture();
+        submit(address, future);
+        return future;
+    }
+
+    /**
+     * @param callback receives response or failure on I/O thread
+     */
+    public void submit(InetAddress address, SNTPCallback callback) {
+        if (address == null) {
+            throw new NullPointerException("address == null");
+        }
+        if (callback == null) {
+            throw new NullPointerException("callback == null");
+        }
+        if (listener != null) {
+            final String host = address.getHostAddress();
+            listener.onRequestStart(host);
+            callback = new ListeningCallback(host, callback, listener);
+        }
+        if (closed) {
+            callback.onFailure(new IOException("engine closed"));
+            return;
+        }
+        submitted.add(new Request(new InetSocketAddress(address, port), callback));
+        if (closed) {
+            // I/O thread could have failed submitted requests right before ours was added
+            failSubmitted();
+            return;
+        }
+        selector.wakeup();
+    }
+
+    /**
+     * Stops I/O thread. All pending requests fail.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+    }
+
+    private void loop() {
+        try {
+            while (!closed) {
+                selector.select(nextWait());
+                if (key.isReadable()) {
+                    receive();
+                }
+                selector.selectedKeys().clear();
+
+                for (Request request = submitted.poll(); request != null; request = submitted.poll()) {
+                    backlog.add(request);
+                }
+                send();
+                expire();
+            }
+        } catch (IOException ignore) {
+        } finally {
+            closed = true;
+            try {
+                channel.close();
+                selector.close();
+            } catch (IOException ignore) {
+            }
+            failAll();
+        }
+    }
+
+    private long nextWait() {
+        if (timeout == 0 || inFlight.isEmpty()) {
+            return 0;
+        }
+        // all requests have same timeout so the oldest one expires first
+        final Request oldest = inFlight.values().iterator().next();
+        return Math.max(1, oldest.requestTicks + timeout - ticks());
+    }
+
+    private void send() throws IOException {
+        while (!backlog.isEmpty()) {
+            final Request request = backlog.peek();
+
+            SNTPPacket.writeMode(buffer);
+            request.requestTime = System.currentTimeMillis();
+            request.requestTicks = clock != null ? clock.ticks() : request.requestTime;
+            request.requestNanoTicks = SNTPClient.nanoTicks(clock);
+            final long transmit = writeUniqueTimestamp(request.requestTime);
+
+            byteBuffer.clear();
+            final int sent;
+            try {
+                sent = channel.send(byteBuffer, request.address);
+            } catch (IOException e) {
+                backlog.poll();
+                fail(request, e);
+                continue;
+            }
+            if (sent == 0) {
+                break; // no room in socket buffer, wait for OP_WRITE
+            }
+            backlog.poll();
+            inFlight.put(transmit, request);
+        }
+        key.interestOps(backlog.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    private long writeUniqueTimestamp(long requestTime) {
+        SNTPPacket.writeTimestamp(requestTime, buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
+
+        // lowest bits of fraction are far below millisecond resolution, use them to tell requests apart
+        final long seconds = SNTPPacket.readUint32(buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
+        long fraction = SNTPPacket.readUint32(buffer, SNTPPacket.TRANSMIT_TIME_OFFSET + 4);
+        long transmit;
+        do {
+            fraction = (fraction & ~0xFFFFL) | (sequence++ & 0xFFFF);
+            transmit = (seconds << 32) | fraction;
+        } while (inFlight.containsKey(transmit));
+
+        SNTPPacket.writeUint32(fraction, buffer, SNTPPacket.TRANSMIT_TIME_OFFSET + 4);
+        return transmit;
+    }
+
+    private void receive() throws IOException {
+        while (true) {
+            byteBuffer.clear();
+            final SocketAddress from = channel.receive(byteBuffer);
+            if (from == null) {
+                return;
+            }
+            if (byteBuffer.position() < SNTPPacket.SIZE) {
+                continue;
+            }
+            final long responseNanoTicks = SNTPClient.nanoTicks(clock);
+            final long responseTicks = clock != null ? clock.ticks() : 0;
+
+            final long originate = SNTPPacket.readUint64(buffer, SNTPPacket.ORIGINATE_TIME_OFFSET);
+
+            final Request request = inFlight.get(originate);
+            if (request == null || !request.address.equals(from)) {
+                continue; // late, duplicate or bogus reply
+            }
+            inFlight.remove(originate);
+
+            final SNTPHeader header;
+            try {
+                header = SNTPClient.checkReply(request.address.getAddress().getHostAddress(), buffer, originate);
+            } catch (IOException e) {
+                fail(request, e);
+                continue;
+            }
+
+            final long receiveTime = SNTPPacket.readTimestampNanos(buffer, SNTPPacket.RECEIVE_TIME_OFFSET);
+            final long transmitTime = SNTPPacket.readTimestampNanos(buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
+
+            respond(request, SNTPResponse.create(request.requestTime, responseNanoTicks - request.requestNanoTicks,
+                    receiveTime, transmitTime, header.rootDispersion, clock, responseTicks, responseNanoTicks));
+        }
+    }
+
+    private void expire() {
+        if (timeout == 0) {
+            return;
+        }
+        final long now = ticks();
+        final Iterator<Map.Entry<Long, Request>> iterator = inFlight.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Request request = iterator.next().getValue();
+            if (request.requestTicks + timeout > now) {
+                return;
+            }
+            iterator.remove();
+            fail(request, new SocketTimeoutException("no response from " + request.address + " in " + timeout + " ms"));
+        }
+    }
+
+    private void failAll() {
+        failSubmitted();
+        for (Request request : backlog) {
+            fail(request, new IOException("engine closed"));
+        }
+        backlog.clear();
+        for (Request request : inFlight.values()) {
+            fail(request, new IOException("engine closed"));
+        }
+        inFlight.clear();
+    }
+
+    /**
+     * Safe to call from any thread since each request is taken out of queue once.
+     */
+    private void failSubmitted() {
+        for (Request request = submitted.poll(); request != null; request = submitted.poll()) {
+            fail(request, new IOException("engine closed"));
+        }
+    }
+
+    private static void respond(Request request, SNTPResponse response) {
+        try {
+            request.callback.onResponse(response);
+        } catch (RuntimeException e) {
+            uncaught(e);
+        }
+    }
+
+    private static void fail(Request request, IOException exception) {
+        try {
+            request.callback.onFailure(exception);
+        } catch (RuntimeException e) {
+            uncaught(e);
+        }
+    }
+
+    private static void uncaught(RuntimeException e) {
+        final Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    private long ticks() {
+        return clock != null ? clock.ticks() : System.currentTimeMillis();
+    }
+
+    private static final class Request {
+        final InetSocketAddress address;
+        final SNTPCallback callback;
+        long requestTime;
+        long requestTicks;
+        long requestNanoTicks;
+
+        Request(InetSocketAddress address, SNTPCallback callback) {
+            this.address = address;
+            this.callback = callback;
+        }
+    }
+
+    private static final class ListeningCallback implements SNTPCallback {
+        final String host;
+        final SNTPCallback callback;
+        final SNTPListener listener;
+
+        ListeningCallback(String host, SNTPCallback callback, SNTPListener listener) {
+            this.host = host;
+            this.callback = callback;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onResponse(SNTPResponse response) {
+            listener.onRequestEnd(host, response);
+            callback.onResponse(response);
+        }
+
+        @Override
+        public void onFailure(IOException exception) {
+            listener.onRequestFailure(host, exception);
+            callback.onFailure(exception);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package io.github.eterverda.sntp;
+
+import java.text.ParseException;
+
+/**
+ * Allocation-free codec for timestamps formatted as {@code yyyy-MM-dd'T'HH:mm:ss.SSS'Z'} in UTC and for decimal longs.
+ * Nanosecond timestamps have 9 fraction digits, {@code yyyy-MM-dd'T'HH:mm:ss.SSSSSSSSS'Z'}, unless they are whole
+ * milliseconds. Nanosecond durations are written as decimal milliseconds with up to 6 fraction digits.
+ * Unlike {@link java.text.SimpleDateFormat} it is thread-safe and does not need any initialization.
+ */
+final class SNTPFormat {
+    static final int TIMESTAMP_LENGTH = 24;
+    static final int MAX_TIMESTAMP_LENGTH = TIMESTAMP_LENGTH + 6;
+    static final int MAX_LONG_LENGTH = 20;
+    static final int MAX_MILLIS_LENGTH = 1 + 13 + 1 + 6;
+
+    private static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    // days between 0000-03-01 and 1970-01-01, see http://howardhinnant.github.io/date_algorithms.html
+    private static final long DAYS_0000_TO_1970 = 719468;
+    private static final long DAYS_PER_ERA = 146097;
+
+    private SNTPFormat() {
+    }
+
+    /**
+     * @return offset right after written chars
+     */
+    static int formatTimestamp(long timeMillis, char[] buf, int off) {
+        final long days = floorDiv(timeMillis, MILLIS_PER_DAY);
+        int millisOfDay = (int) (timeMillis - days * MILLIS_PER_DAY);
+
+        final long z = days + DAYS_0000_TO_1970;
+        final long era = floorDiv(z, DAYS_PER_ERA);
+        final int dayOfEra = (int) (z - era * DAYS_PER_ERA);
+        final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final int mp = (5 * dayOfYear + 2) / 153;
+        final int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        final int month = mp < 10 ? mp + 3 : mp - 9;
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        final int millis = millisOfDay % 1000;
+        millisOfDay /= 1000;
+        final int seconds = millisOfDay % 60;
+        millisOfDay /= 60;
+        final int minutes = millisOfDay % 60;
+        final int hours = millisOfDay / 60;
+
+        off = formatDigits(year, 4, buf, off);
+        buf[off++] = '-';
+        off = formatDigits(month, 2, buf, off);
+        buf[off++] = '-';
+        off = formatDigits(day, 2, buf, off);
+        buf[off++] = 'T';
+        off = formatDigits(hours, 2, buf, off);
+        buf[off++] = ':';
+        off = formatDigits(minutes, 2, buf, off);
+        buf[off++] = ':';
+        off = formatDigits(seconds, 2, buf, off);
+        buf[off++] = '.';
+        off = formatDigits(millis, 3, buf, off);
+        buf[off++] = 'Z';
+        return off;
+    }
+
+    /**
+     * @return offset right after written chars
+     */
+    static int formatTimestampNanos(long timeNanos, char[] buf, int off) {
+        final long millis = floorDiv(timeNanos, NANOS_PER_MILLI);
+        final long nanosOfMilli = timeNanos - millis * NANOS_PER_MILLI;
+
+        off = formatTimestamp(millis, buf, off);
+        if (nanosOfMilli == 0) {
+            return off;
+        }
+        off = formatDigits(nanosOfMilli, 6, buf, off - 1);
+        buf[off++] = 'Z';
+        return off;
+    }
+
+    static long parseTimestamp(CharSequence s, int start, int end) throws ParseException {
+        if (end - start != TIMESTAMP_LENGTH) {
+            throw new ParseException("malformed timestamp", start);
+        }
+        expect(s, start + 23, 'Z');
+        return parseTimestampMillis(s, start);
+    }
+
+    /**
+     * Parses both millisecond and nanosecond timestamps.
+     */
+    static long parseTimestampNanos(CharSequence s, int start, int end) throws ParseException {
+        if (end - start == TIMESTAMP_LENGTH) {
+            return parseTimestamp(s, start, end) * NANOS_PER_MILLI;
+        }
+        if (end - start != MAX_TIMESTAMP_LENGTH) {
+            throw new ParseException("malformed timestamp", start);
+        }
+        final long nanosOfMilli = parseDigits(s, start + 23, start + 29);
+        expect(s, start + 29, 'Z');
+        return parseTimestampMillis(s, start) * NANOS_PER_MILLI + nanosOfMilli;
+    }
+
+    private static long parseTimestampMillis(CharSequence s, int start) throws ParseException {
+        final int year = (int) parseDigits(s, start, start + 4);
+        expect(s, start + 4, '-');
+        final int month = (int) parseDigits(s, start + 5, start + 7);
+        expect(s, start + 7, '-');
+        final int day = (int) parseDigits(s, start + 8, start + 10);
+        expect(s, start + 10, 'T');
+        final int hours = (int) parseDigits(s, start + 11, start + 13);
+        expect(s, start + 13, ':');
+        final int minutes = (int) parseDigits(s, start + 14, start + 16);
+        expect(s, start + 16, ':');
+        final int seconds = (int) parseDigits(s, start + 17, start + 19);
+        expect(s, start + 19, '.');
+        final int millis = (int) parseDigits(s, start + 20, start + 23);
+
+        if (month < 1 || month > 12) {
+            throw new ParseException("malformed month", start + 5);
+        }
+        if (day < 1 || day > daysInMonth(year, month)) {
+            throw new ParseException("malformed day", start + 8);
+        }
+        if (hours > 23) {
+            throw new ParseException("malformed hours", start + 11);
+        }
+        if (minutes > 59) {
+            throw new ParseException("malformed minutes", start + 14);
+        }
+        if (seconds > 59) {
+            throw new ParseException("malformed seconds", start + 17);
+        }
+
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = (int) floorDiv(y, 400);
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        final long days = era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+
+        return days * MILLIS_PER_DAY + ((hours * 60L + minutes) * 60L + seconds) * 1000L + millis;
+    }
+
+    /**
+     * @return offset right after written chars
+     */
+    static int formatLong(long value, char[] buf, int off) {
+        if (value == Long.MIN_VALUE) {
+            final String min = "-9223372036854775808";
+            min.getChars(0, min.length(), buf, off);
+            return off + min.length();
+        }
+        if (value < 0) {
+            buf[off++] = '-';
+            value = -value;
+        }
+        int length = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            length++;
+        }
+        return formatDigits(value, length, buf, off);
+    }
+
+    static long parseLong(CharSequence s, int start, int end) throws ParseException {
+        final boolean negative = start < end && s.charAt(start) == '-';
+        final int digits = negative ? start + 1 : start;
+        if (digits == end || end - digits > 19) {
+            throw new ParseException("malformed number", start);
+        }
+        final long value = parseDigits(s, digits, end);
+        if (value < 0) {
+            throw new ParseException("number too large", start);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Writes nanoseconds as decimal milliseconds, e.g. {@code 1.5} for 1500000 nanoseconds.
+     *
+     * @return offset right after written chars
+     */
+    static int formatMillis(long nanos, char[] buf, int off) {
+        long millis = nanos / NANOS_PER_MILLI;
+        long nanosOfMilli = nanos % NANOS_PER_MILLI;
+        if (nanosOfMilli == 0) {
+            return formatLong(millis, buf, off);
+        }
+        if (nanos < 0) {
+            buf[off++] = '-';
+            millis = -millis;
+            nanosOfMilli = -nanosOfMilli;
+        }
+        off = formatLong(millis, buf, off);
+        buf[off++] = '.';
+        int length = 6;
+        while (nanosOfMilli % 10 == 0) {
+            nanosOfMilli /= 10;
+            length--;
+        }
+        return formatDigits(nanosOfMilli, length, buf, off);
+    }
+
+    /**
+     * Parses decimal milliseconds written by {@link #formatMillis(long, char[], int)} or by {@link #formatLong(long, char[], int)}.
+     *
+     * @return nanoseconds
+     */
+    static long parseMillis(CharSequence s, int start, int end) throws ParseException {
+        int dot = start;
+        while (dot < end && s.charAt(dot) != '.') {
+            dot++;
+        }
+        final long millis = parseLong(s, start, dot);
+        if (millis > Long.MAX_VALUE / NANOS_PER_MILLI || millis < Long.MIN_VALUE / NANOS_PER_MILLI) {
+            throw new ParseException("number too large", start);
+        }
+        if (dot == end) {
+            return millis * NANOS_PER_MILLI;
+        }
+        final int length = end - dot - 1;
+        if (length < 1 || length > 6) {
+            throw new ParseException("malformed fraction", dot);
+        }
+        long nanosOfMilli = parseDigits(s, dot + 1, end);
+        for (int i = length; i < 6; i++) {
+            nanosOfMilli *= 10;
+        }
+        return s.charAt(start) == '-' ? millis * NANOS_PER_MILLI - nanosOfMilli : millis * NANOS_PER_MILLI + nanosOfMilli;
+    }
+
+    /**
+     * @return offset right after expected string
+     * @throws ParseException if there is no such string at given offset
+     */
+    static int expect(CharSequence s, int off, int end, String expected) throws ParseException {
+        final int length = expected.length();
+        if (end - off < length) {
+            throw new ParseException("expected " + expected, off);
+        }
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(off + i) != expected.charAt(i)) {
+                throw new ParseException("expected " + expected, off + i);
+            }
+        }
+        return off + length;
+    }
+
+    /**
+     * @return offset of first whitespace starting from given offset or end
+     */
+    static int tokenEnd(CharSequence s, int off, int end) {
+        while (off < end && !Character.isWhitespace(s.charAt(off))) {
+            off++;
+        }
+        return off;
+    }
+
+    private static void expect(CharSequence s, int off, char expected) throws ParseException {
+        if (s.charAt(off) != expected) {
+            throw new ParseException("expected " + expected, off);
+        }
+    }
+
+    private static int formatDigits(long value, int length, char[] buf, int off) {
+        for (int i = off + length - 1; i >= off; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return off + length;
+    }
+
+    private static long parseDigits(CharSequence s, int start, int end) throws ParseException {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new ParseException("expected digit", i);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static long floorDiv(long x, long y) {
+        final long q = x / y;
+        return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+    }
+}
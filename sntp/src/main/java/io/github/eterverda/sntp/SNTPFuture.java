@@ -0,0 +1,86 @@
+package io.github.eterverda.sntp;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class SNTPFuture implements Future<SNTPResponse>, SNTPCallback {
+    private static final int PENDING = 0;
+    private static final int COMPLETING = 1;
+    private static final int RESPONDED = 2;
+    private static final int FAILED = 3;
+    private static final int CANCELLED = 4;
+
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    private SNTPResponse response;
+    private IOException failure;
+
+    @Override
+    public void onResponse(SNTPResponse response) {
+        if (state.compareAndSet(PENDING, COMPLETING)) {
+            this.response = response;
+            state.set(RESPONDED);
+            latch.countDown();
+        }
+    }
+
+    @Override
+    public void onFailure(IOException exception) {
+        if (state.compareAndSet(PENDING, COMPLETING)) {
+            this.failure = exception;
+            state.set(FAILED);
+            latch.countDown();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (state.compareAndSet(PENDING, CANCELLED)) {
+            latch.countDown();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return state.get() == CANCELLED;
+    }
+
+    @Override
+    public boolean isDone() {
+        return state.get() > COMPLETING;
+    }
+
+    @Override
+    public SNTPResponse get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return report();
+    }
+
+    @Override
+    public SNTPResponse get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return report();
+    }
+
+    private SNTPResponse report() throws ExecutionException {
+        switch (state.get()) {
+            case RESPONDED:
+                return response;
+            case FAILED:
+                throw new ExecutionException(failure);
+            default:
+                throw new CancellationException();
+        }
+    }
+}
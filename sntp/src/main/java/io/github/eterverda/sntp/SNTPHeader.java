@@ -0,0 +1,62 @@
+package io.github.eterverda.sntp;
+
+/**
+ * Fields of NTP packet preceding timestamps, RFC 5905 section 7.3.
+ */
+final class SNTPHeader {
+    static final int LEAP_ALARM = 3;
+    static final int MAX_STRATUM = 15;
+    static final int MAX_POLL = 17;
+    // poll exponent of requests, replies that echo it do not ask to slow down
+    static final int REQUEST_POLL = 0;
+
+    final int leap;
+    final int version;
+    final int mode;
+    final int stratum;
+    final int poll;
+    final int precision;
+    // nanoseconds
+    final long rootDelay;
+    final long rootDispersion;
+    final long referenceId;
+
+    private SNTPHeader(byte[] buffer) {
+        leap = (buffer[0] >> 6) & 0x3;
+        version = (buffer[0] >> 3) & 0x7;
+        mode = buffer[0] & 0x7;
+        stratum = buffer[1] & 0xff;
+        poll = buffer[2];
+        precision = buffer[3];
+        rootDelay = SNTPPacket.readDurationNanos(buffer, SNTPPacket.ROOT_DELAY_OFFSET);
+        rootDispersion = SNTPPacket.readDurationNanos(buffer, SNTPPacket.ROOT_DISPERSION_OFFSET);
+        referenceId = SNTPPacket.readUint32(buffer, SNTPPacket.REFERENCE_ID_OFFSET);
+    }
+
+    static SNTPHeader read(byte[] buffer) {
+        return new SNTPHeader(buffer);
+    }
+
+    /**
+     * @return interval in milliseconds server wants to be polled at, poll exponent is clamped to 0..{@link #MAX_POLL}
+     */
+    long getPollInterval() {
+        return 1000L << Math.min(Math.max(poll, 0), MAX_POLL);
+    }
+
+    /**
+     * @return reference identifier as four ASCII characters, meaningful for stratum 0 and 1 only
+     */
+    String getReferenceCode() {
+        final char[] code = new char[4];
+        int length = 0;
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            final char c = (char) ((referenceId >> shift) & 0xff);
+            if (c == 0) {
+                break;
+            }
+            code[length++] = c >= 0x20 && c < 0x7f ? c : '?';
+        }
+        return new String(code, 0, length);
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.eterverda.sntp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiting hedged requests to given share of regular ones. Every request adds share of token,
+ * every hedge takes whole token, bucket holds at most {@link #MAX_TOKENS} tokens. So in the long run hedges
+ * add at most share of extra traffic, and when hosts slow down all at once hedging stops after a short burst
+ * instead of doubling load on them.
+ */
+final class SNTPHedgeBudget {
+    static final int MAX_TOKENS = 10;
+
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final AtomicLong balance = new AtomicLong(MAX_TOKENS * TOKEN);
+
+    /**
+     * @param share from 0 to 1, maximum ratio of hedges to requests
+     */
+    SNTPHedgeBudget(double share) {
+        this.deposit = Math.round(share * TOKEN);
+    }
+
+    void onRequest() {
+        while (true) {
+            final long current = balance.get();
+            final long next = Math.min(current + deposit, MAX_TOKENS * TOKEN);
+            if (current == next || balance.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if hedge may be sent
+     */
+    boolean tryAcquire() {
+        while (true) {
+            final long current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+}
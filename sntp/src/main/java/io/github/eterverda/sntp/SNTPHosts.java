@@ -2,6 +2,19 @@ package io.github.eterverda.sntp;
 
 import java.util.Arrays;
 
+/**
+ * List of hosts to query. Tracks health of every host from results reported by {@link SNTPClient}:
+ * <ul>
+ * <li>{@link #nextHost()} picks two random hosts and returns the one with lower moving average round-trip delay
+ * weighted by failure rate, so fast hosts are preferred but slow ones are still tried from time to time;</li>
+ * <li>host that failed several times in a row is ejected for a while, each next ejection is twice as long;</li>
+ * <li>{@link #getTimeout(String, int)} derives socket timeout of host from its recent round-trip delays;</li>
+ * <li>host is not picked again before poll interval of its last reply passes unless all other hosts are
+ * unavailable too;</li>
+ * <li>host that sent {@link SNTPKissOfDeathException Kiss-o'-Death} is not queried at all for a while.</li>
+ * </ul>
+ * Predefined instances are shared by all clients using them.
+ */
 public final class SNTPHosts {
     public static final SNTPHosts THE = new SNTPHosts(true, "pool.ntp.org");
 
@@ -12,7 +25,22 @@ public final class SNTPHosts {
 
     public static final SNTPHosts RU = new SNTPHosts(true, "0.ru.pool.ntp.org", "1.ru.pool.ntp.org", "2.ru.pool.ntp.org", "3.ru.pool.ntp.org");
 
+    static final int EJECT_AFTER_FAILURES = 2;
+    static final long MIN_EJECTION = 30 * 1000;
+    static final long MAX_EJECTION = 30 * 60 * 1000;
+    static final int MIN_TIMEOUT = 250;
+    // default minimal poll interval of NTP
+    static final long MIN_RATE_EMBARGO = 64 * 1000;
+    static final long MAX_EMBARGO = (1000L << SNTPHeader.MAX_POLL);
+
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final int TIMEOUT_FACTOR = 3;
+    private static final int TIMEOUT_SAMPLES = 4;
+    // clock() is derived from System.nanoTime() which may be negative, so 0 cannot mean "never"
+    private static final long UNSET = Long.MIN_VALUE;
+
     private final String[] hosts;
+    private final Health[] health;
     private volatile transient int index;
 
     public SNTPHosts(String host) {
@@ -20,6 +48,7 @@ public final class SNTPHosts {
             throw new NullPointerException("host == null");
         }
         hosts = new String[]{host};
+        health = health(1);
     }
 
     public SNTPHosts(String... hosts) {
@@ -37,17 +66,250 @@ public final class SNTPHosts {
             }
         }
         this.hosts = h;
+        this.health = health(length);
     }
 
     private SNTPHosts(@SuppressWarnings("UnusedParameters") boolean safe, String... hosts) {
         this.hosts = hosts;
+        this.health = health(hosts.length);
         index = (int) (Math.random() * hosts.length);
     }
 
-    @SuppressWarnings("NonAtomicOperationOnVolatileField")
+    private static Health[] health(int length) {
+        final Health[] health = new Health[length];
+        for (int i = 0; i < length; i++) {
+            health[i] = new Health();
+        }
+        return health;
+    }
+
+    public int size() {
+        return hosts.length;
+    }
+
     public String nextHost() {
-        final int i = index++;
-        return hosts[Math.abs(i % hosts.length)];
+        return hosts[nextIndex(now(), null)];
+    }
+
+    /**
+     * @return current time for availability checks, avoiding clock read while all hosts are available
+     */
+    private long now() {
+        for (Health h : health) {
+            if (h.ejectedUntil != UNSET || h.pollAfter != UNSET || h.embargoedUntil != UNSET) {
+                return clock();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return given number of distinct hosts (or all of them if there are fewer) chosen same way as
+     * {@link #nextHost()}
+     */
+    String[] nextHosts(int count) {
+        final long now = now();
+        final int length = Math.min(count, hosts.length);
+        final boolean[] taken = new boolean[hosts.length];
+        final String[] result = new String[length];
+        for (int i = 0; i < length; i++) {
+            final int index = nextIndex(now, taken);
+            taken[index] = true;
+            result[i] = hosts[index];
+        }
+        return result;
+    }
+
+    @SuppressWarnings("NonAtomicOperationOnVolatileField")
+    int nextIndex(long now, boolean[] taken) {
+        final int length = hosts.length;
+        if (length == 1) {
+            return 0;
+        }
+        final int seed = mix(index++);
+        final int a = free(Math.abs(seed % length), taken, -1);
+        final int b = free(Math.abs((seed >> 16) % length), taken, a);
+        if (b < 0) {
+            return a;
+        }
+
+        final int aPenalty = health[a].penalty(now);
+        final int bPenalty = health[b].penalty(now);
+        if (aPenalty != 0 && bPenalty != 0) {
+            return leastPenalized(now, taken);
+        }
+        if (aPenalty != bPenalty) {
+            return aPenalty == 0 ? a : b;
+        }
+        return health[a].score() <= health[b].score() ? a : b;
+    }
+
+    /**
+     * @return first index starting from given one that is neither taken nor excluded, -1 if there is none
+     */
+    private int free(int start, boolean[] taken, int excluded) {
+        final int length = hosts.length;
+        for (int i = 0; i < length; i++) {
+            final int index = (start + i) % length;
+            if (index != excluded && (taken == null || !taken[index])) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return index of host that is available or that is least unavailable and becomes available first
+     */
+    private int leastPenalized(long now, boolean[] taken) {
+        int best = -1;
+        int bestPenalty = 0;
+        for (int i = 0; i < hosts.length; i++) {
+            if (taken != null && taken[i]) {
+                continue;
+            }
+            final int penalty = health[i].penalty(now);
+            if (penalty == 0) {
+                return i;
+            }
+            if (best < 0 || penalty < bestPenalty
+                    || penalty == bestPenalty && health[i].until(penalty) < health[best].until(penalty)) {
+                best = i;
+                bestPenalty = penalty;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Reports successful request to given host.
+     */
+    public void reportResponse(String host, long roundTripDelay) {
+        final Health health = health(host);
+        if (health != null) {
+            health.onResponse(roundTripDelay);
+        }
+    }
+
+    /**
+     * Reports failed request to given host, e.g. timeout or resolution failure.
+     */
+    public void reportFailure(String host) {
+        reportFailure(host, clock());
+    }
+
+    void reportFailure(String host, long now) {
+        final Health health = health(host);
+        if (health != null) {
+            health.onFailure(now);
+        }
+    }
+
+    /**
+     * Reports poll interval of reply of given host. Host is not picked before it passes unless all other hosts are
+     * unavailable too. Shorter interval does not bring host back before the one reported earlier passes.
+     *
+     * @param interval milliseconds
+     */
+    public void reportPollInterval(String host, long interval) {
+        reportPollInterval(host, interval, clock());
+    }
+
+    void reportPollInterval(String host, long interval, long now) {
+        final Health health = health(host);
+        if (health != null) {
+            health.onPoll(now, interval);
+        }
+    }
+
+    /**
+     * Reports Kiss-o'-Death reply of given host. {@link SNTPKissOfDeathException#RATE} keeps host away for its
+     * poll interval but not less than a minute, each next one in a row twice as long.
+     * {@link SNTPKissOfDeathException#DENY} and {@link SNTPKissOfDeathException#RSTR} keep host away for 36 hours,
+     * the longest poll interval of NTP. Other codes count as failures.
+     *
+     * @param pollInterval poll interval of reply in milliseconds
+     */
+    public void reportKissOfDeath(String host, String code, long pollInterval) {
+        reportKissOfDeath(host, code, pollInterval, clock());
+    }
+
+    void reportKissOfDeath(String host, String code, long pollInterval, long now) {
+        final Health health = health(host);
+        if (health == null) {
+            return;
+        }
+        if (SNTPKissOfDeathException.RATE.equals(code)) {
+            health.onRate(now, pollInterval);
+        } else if (SNTPKissOfDeathException.DENY.equals(code) || SNTPKissOfDeathException.RSTR.equals(code)) {
+            health.onDeny(now, code);
+        } else {
+            health.onFailure(now);
+        }
+    }
+
+    /**
+     * @return code of Kiss-o'-Death because of which given host must not be queried now, {@code null} if it may be
+     */
+    public String getEmbargo(String host) {
+        final Health health = health(host);
+        return health != null && health.embargoedUntil > clock() ? health.embargoCode : null;
+    }
+
+    /**
+     * @param timeout configured timeout in milliseconds, 0 for infinite
+     * @return several times recent 95th percentile of round-trip delays of host but not more than given timeout;
+     * given timeout if it is infinite or host has too few responses yet
+     */
+    public int getTimeout(String host, int timeout) {
+        final Health health = health(host);
+        if (timeout == 0 || health == null || health.timeout == 0) {
+            return timeout;
+        }
+        return (int) Math.min(Math.max(health.timeout, MIN_TIMEOUT), timeout);
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return given percentile of recent round-trip delays of host in milliseconds or -1 if host has too few
+     * responses yet
+     */
+    public long getRoundTripPercentile(String host, double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile out of range: " + percentile);
+        }
+        final Health health = health(host);
+        return health != null && health.responses >= TIMEOUT_SAMPLES ? health.percentile(percentile) : -1;
+    }
+
+    /**
+     * @return moving average of round-trip delay of host in milliseconds or -1 if unknown
+     */
+    public long getRoundTripDelay(String host) {
+        final Health health = health(host);
+        return health != null && health.responses > 0 ? Math.round(health.rtt) : -1;
+    }
+
+    private Health health(String host) {
+        for (int i = 0; i < hosts.length; i++) {
+            if (hosts[i].equals(host)) {
+                return health[i];
+            }
+        }
+        return null;
+    }
+
+    private static long clock() {
+        return System.nanoTime() / 1000000L;
+    }
+
+    private static int mix(int x) {
+        x ^= x >>> 16;
+        x *= 0x85ebca6b;
+        x ^= x >>> 13;
+        x *= 0xc2b2ae35;
+        x ^= x >>> 16;
+        return x;
     }
 
     @Override
@@ -63,4 +325,108 @@ public final class SNTPHosts {
     public int hashCode() {
         return Arrays.hashCode(hosts);
     }
+
+    private static final class Health {
+        // written under lock, read without it
+        volatile double rtt;
+        volatile double failureRate;
+        volatile long ejectedUntil = UNSET;
+        volatile long pollAfter = UNSET;
+        volatile long embargoedUntil = UNSET;
+        volatile String embargoCode;
+        volatile long responses;
+        volatile long timeout;
+
+        private int consecutiveFailures;
+        private long ejection;
+        private long rateEmbargo;
+        private final long[] recent = new long[16];
+        // same delays as in recent in ascending order so percentiles are read without sorting
+        private final long[] sorted = new long[16];
+
+        /**
+         * @return 0 if host is available, 1 if poll interval has not passed yet, 2 if host is ejected,
+         * 3 if host sent Kiss-o'-Death
+         */
+        int penalty(long now) {
+            return embargoedUntil > now ? 3 : ejectedUntil > now ? 2 : pollAfter > now ? 1 : 0;
+        }
+
+        long until(int penalty) {
+            return penalty == 3 ? embargoedUntil : penalty == 2 ? ejectedUntil : pollAfter;
+        }
+
+        /**
+         * Unknown hosts score zero so they are tried first. Hosts that failed but never responded have no round-trip
+         * delay to weight, so any host that responded is preferred to them.
+         */
+        double score() {
+            if (responses == 0) {
+                return failureRate > 0 ? Double.MAX_VALUE * failureRate : 0;
+            }
+            return rtt * (1 + 10 * failureRate);
+        }
+
+        synchronized void onResponse(long roundTripDelay) {
+            rtt = responses == 0 ? roundTripDelay : rtt + EWMA_WEIGHT * (roundTripDelay - rtt);
+            failureRate -= EWMA_WEIGHT * failureRate;
+            consecutiveFailures = 0;
+            ejection = 0;
+            ejectedUntil = UNSET;
+            rateEmbargo = 0;
+
+            record(roundTripDelay);
+            responses++;
+            timeout = responses < TIMEOUT_SAMPLES ? 0 : TIMEOUT_FACTOR * percentile(95);
+        }
+
+        synchronized void onFailure(long now) {
+            failureRate += EWMA_WEIGHT * (1 - failureRate);
+            if (++consecutiveFailures < EJECT_AFTER_FAILURES) {
+                return;
+            }
+            ejection = ejection == 0 ? MIN_EJECTION : Math.min(ejection * 2, MAX_EJECTION);
+            ejectedUntil = now + ejection;
+        }
+
+        synchronized void onPoll(long now, long interval) {
+            pollAfter = Math.max(pollAfter, now + Math.min(interval, MAX_EMBARGO));
+        }
+
+        synchronized void onRate(long now, long pollInterval) {
+            rateEmbargo = Math.min(Math.max(Math.max(pollInterval, MIN_RATE_EMBARGO), rateEmbargo * 2), MAX_EMBARGO);
+            embargoCode = SNTPKissOfDeathException.RATE;
+            embargoedUntil = now + rateEmbargo;
+        }
+
+        synchronized void onDeny(long now, String code) {
+            embargoCode = code;
+            embargoedUntil = now + MAX_EMBARGO;
+        }
+
+        /**
+         * Replaces oldest delay in window with given one keeping {@link #sorted} in order, window is small enough
+         * for linear shifts.
+         */
+        private void record(long roundTripDelay) {
+            final int slot = (int) (responses % recent.length);
+            int count = (int) Math.min(responses, recent.length);
+            if (count == recent.length) {
+                final int oldest = Arrays.binarySearch(sorted, 0, count, recent[slot]);
+                System.arraycopy(sorted, oldest + 1, sorted, oldest, count - oldest - 1);
+                count--;
+            }
+            recent[slot] = roundTripDelay;
+            int i = count;
+            for (; i > 0 && sorted[i - 1] > roundTripDelay; i--) {
+                sorted[i] = sorted[i - 1];
+            }
+            sorted[i] = roundTripDelay;
+        }
+
+        synchronized long percentile(double percentile) {
+            final int count = (int) Math.min(responses, recent.length);
+            return sorted[Math.max(Math.min((int) Math.ceil(count * percentile / 100) - 1, count - 1), 0)];
+        }
+    }
 }
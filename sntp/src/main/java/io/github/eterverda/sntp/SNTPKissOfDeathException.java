@@ -0,0 +1,54 @@
+package io.github.eterverda.sntp;
+
+import java.io.IOException;
+
+/**
+ * Server replied with Kiss-o'-Death packet (stratum 0) instead of time, RFC 5905 section 7.4.
+ * <p/>
+ * {@link SNTPHosts} keeps host that sent {@link #RATE} away for at least its poll interval and host that sent
+ * {@link #DENY} or {@link #RSTR} for the longest poll interval NTP defines. Requests to such hosts fail with this
+ * exception without sending anything.
+ */
+public class SNTPKissOfDeathException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Rate exceeded, server asks to reduce polling.
+     */
+    public static final String RATE = "RATE";
+    /**
+     * Access denied by server.
+     */
+    public static final String DENY = "DENY";
+    /**
+     * Access restricted by server.
+     */
+    public static final String RSTR = "RSTR";
+
+    private final String host;
+    private final String code;
+    // poll interval of kiss-o'-death packet, 0 if exception is thrown without sending request
+    final transient long pollInterval;
+
+    public SNTPKissOfDeathException(String host, String code) {
+        this(host, code, 0);
+    }
+
+    SNTPKissOfDeathException(String host, String code, long pollInterval) {
+        super(host + " sent kiss-o'-death " + code);
+        this.host = host;
+        this.code = code;
+        this.pollInterval = pollInterval;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return four character ASCII code, e.g. {@link #RATE}
+     */
+    public String getCode() {
+        return code;
+    }
+}
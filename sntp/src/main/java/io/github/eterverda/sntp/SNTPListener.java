@@ -0,0 +1,81 @@
+package io.github.eterverda.sntp;
+
+import java.io.IOException;
+
+/**
+ * Observes requests of {@link SNTPClient} and {@link SNTPEngine} and behaviour of cache built by
+ * {@link io.github.eterverda.sntp.cache.SNTPCacheBuilder}. Methods are called synchronously on threads doing
+ * the work, possibly concurrently, so they must be fast and must not block. When no listener is set nothing is
+ * called at all.
+ *
+ * @see SNTPClientBuilder#setListener(SNTPListener)
+ * @see io.github.eterverda.sntp.cache.SNTPCacheBuilder#setListener(SNTPListener)
+ * @see SNTPMetrics
+ */
+public interface SNTPListener {
+    /**
+     * Called before host is resolved. Followed by exactly one of {@link #onRequestEnd(String, SNTPResponse)}
+     * or {@link #onRequestFailure(String, IOException)} for the same host.
+     */
+    void onRequestStart(String host);
+
+    void onRequestEnd(String host, SNTPResponse response);
+
+    /**
+     * @param exception {@link java.net.UnknownHostException} if host cannot be resolved,
+     *                  {@link java.net.SocketTimeoutException} if there was no response in time,
+     *                  other {@link java.io.InterruptedIOException} if request was abandoned
+     *                  since other host replied first, {@link SNTPKissOfDeathException} if server asked to stop
+     *                  or slow down, {@link java.net.ProtocolException} if reply was rejected, e.g. since
+     *                  server is not synchronized
+     */
+    void onRequestFailure(String host, IOException exception);
+
+    void onCacheHit();
+
+    void onCacheMiss();
+
+    /**
+     * Called once per response found expired.
+     */
+    void onCacheExpired(SNTPResponse response);
+
+    /**
+     * Called when persistent cache cannot be read or written. Malformed files are reported
+     * with {@link java.text.ParseException} as a cause.
+     */
+    void onCacheError(IOException exception);
+
+    /**
+     * Empty implementation to extend when only some events are of interest.
+     */
+    class Adapter implements SNTPListener {
+        @Override
+        public void onRequestStart(String host) {
+        }
+
+        @Override
+        public void onRequestEnd(String host, SNTPResponse response) {
+        }
+
+        @Override
+        public void onRequestFailure(String host, IOException exception) {
+        }
+
+        @Override
+        public void onCacheHit() {
+        }
+
+        @Override
+        public void onCacheMiss() {
+        }
+
+        @Override
+        public void onCacheExpired(SNTPResponse response) {
+        }
+
+        @Override
+        public void onCacheError(IOException exception) {
+        }
+    }
+}
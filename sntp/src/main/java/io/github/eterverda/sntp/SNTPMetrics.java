@@ -0,0 +1,257 @@
+package io.github.eterverda.sntp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free {@link SNTPListener} counting events per host and for cache. Round-trip delays are kept in histogram
+ * with power-of-two buckets. Same instance may be passed to both client and cache builders.
+ *
+ * @see #getSnapshot()
+ */
+public final class SNTPMetrics implements SNTPListener {
+    private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    @Override
+    public void onRequestStart(String host) {
+        host(host).requests.incrementAndGet();
+    }
+
+    @Override
+    public void onRequestEnd(String host, SNTPResponse response) {
+        final Host h = host(host);
+        h.responses.incrementAndGet();
+        h.lastOffset.set(response.getClockOffset());
+        h.roundTrip.record(response.getRoundTripDelay());
+    }
+
+    @Override
+    public void onRequestFailure(String host, IOException exception) {
+        final Host h = host(host);
+        if (exception instanceof SocketTimeoutException) {
+            h.timeouts.incrementAndGet();
+        } else if (exception instanceof UnknownHostException) {
+            h.dnsFailures.incrementAndGet();
+        } else if (exception instanceof InterruptedIOException) {
+            h.cancellations.incrementAndGet();
+        } else if (exception instanceof SNTPKissOfDeathException) {
+            h.kissesOfDeath.incrementAndGet();
+        } else {
+            h.failures.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onCacheHit() {
+        hits.incrementAndGet();
+    }
+
+    @Override
+    public void onCacheMiss() {
+        misses.incrementAndGet();
+    }
+
+    @Override
+    public void onCacheExpired(SNTPResponse response) {
+        expirations.incrementAndGet();
+    }
+
+    @Override
+    public void onCacheError(IOException exception) {
+        errors.incrementAndGet();
+    }
+
+    private Host host(String host) {
+        final Host h = hosts.get(host);
+        if (h != null) {
+            return h;
+        }
+        final Host newHost = new Host();
+        final Host oldHost = hosts.putIfAbsent(host, newHost);
+        return oldHost != null ? oldHost : newHost;
+    }
+
+    /**
+     * @return copy of counters, values of different counters may be taken at slightly different moments
+     */
+    public Snapshot getSnapshot() {
+        final Map<String, HostSnapshot> hosts = new HashMap<>();
+        for (Map.Entry<String, Host> entry : this.hosts.entrySet()) {
+            hosts.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return new Snapshot(hits.get(), misses.get(), expirations.get(), errors.get(), Collections.unmodifiableMap(hosts));
+    }
+
+    private static final class Host {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong responses = new AtomicLong();
+        final AtomicLong timeouts = new AtomicLong();
+        final AtomicLong dnsFailures = new AtomicLong();
+        final AtomicLong cancellations = new AtomicLong();
+        final AtomicLong kissesOfDeath = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong lastOffset = new AtomicLong();
+        final Histogram roundTrip = new Histogram();
+
+        HostSnapshot snapshot() {
+            return new HostSnapshot(requests.get(), responses.get(), timeouts.get(), dnsFailures.get(),
+                    cancellations.get(), kissesOfDeath.get(), failures.get(), lastOffset.get(), roundTrip.snapshot());
+        }
+    }
+
+    private static final class Histogram {
+        private final AtomicLongArray counts = new AtomicLongArray(64);
+
+        void record(long value) {
+            counts.incrementAndGet(value > 0 ? 64 - Long.numberOfLeadingZeros(value) : 0);
+        }
+
+        long[] snapshot() {
+            final long[] counts = new long[this.counts.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = this.counts.get(i);
+            }
+            return counts;
+        }
+    }
+
+    public static final class Snapshot {
+        private final long hits;
+        private final long misses;
+        private final long expirations;
+        private final long errors;
+        private final Map<String, HostSnapshot> hosts;
+
+        Snapshot(long hits, long misses, long expirations, long errors, Map<String, HostSnapshot> hosts) {
+            this.hits = hits;
+            this.misses = misses;
+            this.expirations = expirations;
+            this.errors = errors;
+            this.hosts = hosts;
+        }
+
+        public long getCacheHits() {
+            return hits;
+        }
+
+        public long getCacheMisses() {
+            return misses;
+        }
+
+        public long getCacheExpirations() {
+            return expirations;
+        }
+
+        public long getCacheErrors() {
+            return errors;
+        }
+
+        public Map<String, HostSnapshot> getHosts() {
+            return hosts;
+        }
+    }
+
+    public static final class HostSnapshot {
+        private final long requests;
+        private final long responses;
+        private final long timeouts;
+        private final long dnsFailures;
+        private final long cancellations;
+        private final long kissesOfDeath;
+        private final long failures;
+        private final long lastOffset;
+        private final long[] roundTrip;
+
+        HostSnapshot(long requests, long responses, long timeouts, long dnsFailures, long cancellations, long kissesOfDeath,
+                     long failures, long lastOffset, long[] roundTrip) {
+            this.requests = requests;
+            this.responses = responses;
+            this.timeouts = timeouts;
+            this.dnsFailures = dnsFailures;
+            this.cancellations = cancellations;
+            this.kissesOfDeath = kissesOfDeath;
+            this.failures = failures;
+            this.lastOffset = lastOffset;
+            this.roundTrip = roundTrip;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getResponses() {
+            return responses;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getDnsFailures() {
+            return dnsFailures;
+        }
+
+        /**
+         * @return number of requests abandoned since other host replied first
+         */
+        public long getCancellations() {
+            return cancellations;
+        }
+
+        /**
+         * @return number of Kiss-o'-Death replies, requests not sent because of earlier ones are not counted
+         */
+        public long getKissesOfDeath() {
+            return kissesOfDeath;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getLastOffset() {
+            return lastOffset;
+        }
+
+        /**
+         * @param percentile from 0 to 100
+         * @return upper bound of power-of-two bucket containing given percentile of round-trip delays
+         * in milliseconds, 0 if there were no responses
+         */
+        public long getRoundTripPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile out of range: " + percentile);
+            }
+            long total = 0;
+            for (long count : roundTrip) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            final long rank = Math.max((long) Math.ceil(percentile / 100 * total), 1);
+            long seen = 0;
+            for (int i = 0; i < roundTrip.length; i++) {
+                seen += roundTrip[i];
+                if (seen >= rank) {
+                    return i == 0 ? 0 : (1L << i) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.eterverda.sntp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of NTP packet, RFC 5905 section 7.3, and conversions of its timestamps. Shared by {@link SNTPClient} and
+ * by servers built on top of this library.
+ */
+public final class SNTPPacket {
+    // all time calculations in seconds
+    private static final long DAYS = 24L * 60L * 60L;
+    private static final long YEARS = 365L * DAYS;
+    // there were 17 leap days between 1900 and 1970
+    public static final long OFFSET_1900_TO_1970 = (70L * YEARS) + (17L * DAYS);
+
+    public static final int ROOT_DELAY_OFFSET = 4;
+    public static final int ROOT_DISPERSION_OFFSET = 8;
+    public static final int REFERENCE_ID_OFFSET = 12;
+    public static final int REFERENCE_TIME_OFFSET = 16;
+    public static final int ORIGINATE_TIME_OFFSET = 24;
+    public static final int RECEIVE_TIME_OFFSET = 32;
+    public static final int TRANSMIT_TIME_OFFSET = 40;
+    public static final int SIZE = 48;
+
+    public static final int MODE_CLIENT = 3;
+    public static final int MODE_SERVER = 4;
+
+    public static final int PORT = 123;
+
+    // protocol version of requests
+    private static final int VERSION = 3;
+
+    private SNTPPacket() {
+    }
+
+    /**
+     * Writes header of client request of protocol version 3.
+     */
+    public static void writeMode(byte[] buffer) {
+        final int ntpVersion = VERSION;
+        final int mode = MODE_CLIENT;
+        buffer[0] = (ntpVersion << 3) | mode;
+        buffer[2] = SNTPHeader.REQUEST_POLL;
+    }
+
+    /**
+     * Reads NTP timestamp at given offset as Java time in milliseconds.
+     */
+    public static long readTimestamp(byte[] buffer, int offset) {
+        final long ntpSeconds = readUint32(buffer, offset);
+        final long ntpFraction = readUint32(buffer, offset + 4);
+
+        final long seconds = ntpSeconds - OFFSET_1900_TO_1970;
+        final long milliseconds = ntpFraction * 1000L / 0x100000000L;
+
+        return seconds * 1000 + milliseconds;
+    }
+
+    /**
+     * Reads NTP timestamp at given offset as Java time in nanoseconds. Resolution of NTP fraction is about
+     * 233 picoseconds so nothing is lost.
+     */
+    static long readTimestampNanos(byte[] buffer, int offset) {
+        final long ntpSeconds = readUint32(buffer, offset);
+        final long ntpFraction = readUint32(buffer, offset + 4);
+
+        final long seconds = ntpSeconds - OFFSET_1900_TO_1970;
+        final long nanoseconds = (ntpFraction * 1000000000L) >>> 32;
+
+        return seconds * 1000000000L + nanoseconds;
+    }
+
+    /**
+     * Reads NTP short format (16 bits of seconds and 16 bits of fraction) rounding up to nanoseconds.
+     */
+    static long readDurationNanos(byte[] buffer, int offset) {
+        final long ntpShort = readUint32(buffer, offset);
+
+        return (ntpShort * 1000000000L + 0xFFFFL) >> 16;
+    }
+
+    static long readUint64(byte[] buf, int off) {
+        return (readUint32(buf, off) << 32) | readUint32(buf, off + 4);
+    }
+
+    static long readUint32(byte[] buf, int off) {
+        long result = 0;
+        result |= (long) readUint8(buf, off) << 24;
+        result |= (long) readUint8(buf, off + 1) << 16;
+        result |= (long) readUint8(buf, off + 2) << 8;
+        result |= (long) readUint8(buf, off + 3);
+
+        return result;
+    }
+
+    private static int readUint8(byte[] buf, int off) {
+        final byte b = buf[off];
+        return (b & 0x80) == 0x80 ? (b & 0x7F) + 0x80 : b;
+    }
+
+    static void writeTimestamp(long time, byte[] buf, int off) {
+        final long seconds = time / 1000L;
+        final long milliseconds = time - seconds * 1000L;
+
+        final long ntpSeconds = seconds + OFFSET_1900_TO_1970;
+        final long ntpFraction = milliseconds * 0x100000000L / 1000L;
+        final long ntpFractionPlusRandom = ntpFraction | (byte) (Math.random() * 0x100);
+
+        writeUint32(ntpSeconds, buf, off);
+        writeUint32(ntpFractionPlusRandom, buf, off + 4);
+    }
+
+    /**
+     * Writes Java time in nanoseconds as NTP timestamp. Unlike {@link #writeTimestamp(long, byte[], int)} does not
+     * randomize fraction since all of its bits are significant.
+     */
+    public static void writeTimestampNanos(long time, ByteBuffer buffer, int offset) {
+        final long seconds = time % 1000000000L < 0 ? time / 1000000000L - 1 : time / 1000000000L;
+        final long nanoseconds = time - seconds * 1000000000L;
+
+        final long ntpSeconds = seconds + OFFSET_1900_TO_1970;
+        final long ntpFraction = (nanoseconds << 32) / 1000000000L;
+
+        buffer.putInt(offset, (int) ntpSeconds);
+        buffer.putInt(offset + 4, (int) ntpFraction);
+    }
+
+    /**
+     * Writes nanoseconds in NTP short format, durations longer than it can hold are written as the longest one.
+     */
+    public static void writeDurationNanos(long nanos, ByteBuffer buffer, int offset) {
+        final long ntpShort = Math.min(Math.min(nanos, 0xFFFFL * 1000000000L) * 0x10000L / 1000000000L, 0xFFFFFFFFL);
+
+        buffer.putInt(offset, (int) ntpShort);
+    }
+
+    static void writeUint32(long val, byte[] buf, int off) {
+        buf[off] = (byte) (val >> 24);
+        buf[off + 1] = (byte) (val >> 16);
+        buf[off + 2] = (byte) (val >> 8);
+        buf[off + 3] = (byte) val;
+    }
+}
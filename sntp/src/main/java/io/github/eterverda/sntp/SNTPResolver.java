@@ -0,0 +1,29 @@
+package io.github.eterverda.sntp;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Resolves host names of {@link SNTPHosts}. Results are cached by client for time set with
+ * {@link SNTPClientBuilder#setResolverTtl(long)} and requests rotate across all returned addresses,
+ * so pool names like {@code pool.ntp.org} spread load over every server they resolve to.
+ *
+ * @see SNTPClientBuilder#setResolver(SNTPResolver)
+ */
+public interface SNTPResolver {
+    /**
+     * Uses {@link InetAddress#getAllByName(String)}.
+     */
+    SNTPResolver SYSTEM = new SNTPResolver() {
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            return InetAddress.getAllByName(host);
+        }
+    };
+
+    /**
+     * @return at least one address of given host
+     * @throws UnknownHostException if host cannot be resolved
+     */
+    InetAddress[] resolve(String host) throws UnknownHostException;
+}
@@ -1,30 +1,61 @@
 package io.github.eterverda.sntp;
 
-import java.text.NumberFormat;
+import java.nio.LongBuffer;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+/**
+ * Result of SNTP request. Times and durations are kept in nanoseconds, millisecond getters round them down.
+ * Global time at response is measured with sub-millisecond resolution since it depends on server timestamps and
+ * on round trip measured with monotonic clock only, while offset against wall clock is as coarse as
+ * {@link System#currentTimeMillis()}.
+ */
 public final class SNTPResponse {
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
-    private static final NumberFormat NUMBER_FORMAT = NumberFormat.getIntegerInstance(Locale.US);
-    private static final Pattern PATTERN = Pattern.compile("sys ([^\\s]+) ntp ([^\\s]+) off ([^\\s]+)");
-    private static final String FORMAT = "sys %s ntp %s off %d";
+    private static final String SYS = "sys ";
+    private static final String NTP = " ntp ";
+    private static final String OFF = " off ";
+    private static final String DEL = " del ";
+    private static final String DIS = " dis ";
+    private static final String PPB = " ppb ";
 
-    static {
-        DATE_FORMAT.setTimeZone(TimeZone.getTimeZone("GMT"));
-    }
+    /**
+     * Maximum number of chars written by {@link #flattenTo(char[], int)}.
+     */
+    public static final int MAX_FLATTENED_LENGTH = 4 + SNTPFormat.MAX_TIMESTAMP_LENGTH + 5 + SNTPFormat.MAX_TIMESTAMP_LENGTH
+            + 5 * 4 + SNTPFormat.MAX_MILLIS_LENGTH * 3 + SNTPFormat.MAX_LONG_LENGTH;
 
+    /**
+     * Value of {@link #getRoundTripDelay()} and {@link #getDispersion()} when they are not known,
+     * e.g. for responses created from strings without them.
+     */
+    public static final long UNKNOWN = -1;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final long responseTimeNanos;
+    private final long clockOffsetNanos;
+    private final long roundTripDelayNanos;
+    private final long dispersionNanos;
+    private final double drift;
+    private final SNTPClient.MonotonicClock clock;
+    private final long responseTicks;
+    private final long responseNanoTicks;
+
+    // millisecond values are used on every read of cache, do not divide each time
     private final long responseTimeMillis;
     private final long clockOffset;
 
-    private SNTPResponse(long responseLocalTimeMillis, long clockOffset) {
-        this.responseTimeMillis = responseLocalTimeMillis;
-        this.clockOffset = clockOffset;
+    private SNTPResponse(long responseTimeNanos, long clockOffsetNanos, long roundTripDelayNanos, long dispersionNanos, double drift,
+                         SNTPClient.MonotonicClock clock, long responseTicks, long responseNanoTicks) {
+        this.responseTimeNanos = responseTimeNanos;
+        this.clockOffsetNanos = clockOffsetNanos;
+        this.roundTripDelayNanos = roundTripDelayNanos;
+        this.dispersionNanos = dispersionNanos;
+        this.drift = drift;
+        this.clock = clock;
+        this.responseTicks = responseTicks;
+        this.responseNanoTicks = responseNanoTicks;
+        this.responseTimeMillis = toMillis(responseTimeNanos);
+        this.clockOffset = toMillis(responseTimeNanos + clockOffsetNanos) - responseTimeMillis;
     }
 
     /**
@@ -34,6 +65,13 @@ public final class SNTPResponse {
         return responseTimeMillis;
     }
 
+    /**
+     * @return response time on local clock in nanoseconds since epoch
+     */
+    public long getResponseTimeNanos() {
+        return responseTimeNanos;
+    }
+
     /**
      * Difference between local clock and world clock. Positive values mean local clock is behind.
      * Negative values mean local clock is ahead world clock.
@@ -49,40 +87,294 @@ public final class SNTPResponse {
     }
 
     /**
-     * @return {@code localTimeMillis + clockOffset}
+     * @return world clock offset in nanoseconds
      * @see #getClockOffset()
      */
+    public long getClockOffsetNanos() {
+        return clockOffsetNanos;
+    }
+
+    /**
+     * Time spent in network, i.e. time between request and response on local clock minus time spent on server.
+     * Offset error is at most half of it so responses with lower delay are more accurate.
+     *
+     * @return round-trip delay in milliseconds or {@link #UNKNOWN}
+     */
+    public long getRoundTripDelay() {
+        return roundTripDelayNanos != UNKNOWN ? roundTripDelayNanos / NANOS_PER_MILLI : UNKNOWN;
+    }
+
+    /**
+     * @return round-trip delay in nanoseconds or {@link #UNKNOWN}
+     * @see #getRoundTripDelay()
+     */
+    public long getRoundTripDelayNanos() {
+        return roundTripDelayNanos;
+    }
+
+    /**
+     * @return root dispersion reported by server in milliseconds, i.e. its own error bound, or {@link #UNKNOWN}
+     */
+    public long getDispersion() {
+        return dispersionNanos != UNKNOWN ? dispersionNanos / NANOS_PER_MILLI : UNKNOWN;
+    }
+
+    /**
+     * @return root dispersion in nanoseconds or {@link #UNKNOWN}
+     * @see #getDispersion()
+     */
+    public long getDispersionNanos() {
+        return dispersionNanos;
+    }
+
+    /**
+     * Rate at which clock offset changes, e.g. {@code 20e-6} means that local clock loses 20 microseconds
+     * every second.
+     *
+     * @return estimated frequency error of local clock or zero if unknown
+     */
+    public double getDrift() {
+        return drift;
+    }
+
+    /**
+     * @return same response with given drift
+     * @see #getDrift()
+     */
+    public SNTPResponse withDrift(double drift) {
+        return new SNTPResponse(responseTimeNanos, clockOffsetNanos, roundTripDelayNanos, dispersionNanos, drift, clock, responseTicks, responseNanoTicks);
+    }
+
+    /**
+     * @return {@code localTimeMillis + clockOffset} corrected by drift accumulated since response
+     * @see #getClockOffset()
+     * @see #getDrift()
+     */
     public long globalTimeMillis(long localTimeMillis) {
-        return localTimeMillis + clockOffset;
+        return localTimeMillis + clockOffset + (long) (drift * (localTimeMillis - responseTimeMillis));
     }
 
     /**
+     * If response was received with {@link SNTPClient.MonotonicClock} current time is calculated from ticks
+     * elapsed since response so it is not affected by wall clock changes.
+     *
      * @return current time on word clock
      * @see #getClockOffset()
      */
     public long currentGlobalTimeMillis() {
+        if (clock != null) {
+            final long elapsed = clock.ticks() - responseTicks;
+            return responseTimeMillis + clockOffset + elapsed + (long) (drift * elapsed);
+        }
         return globalTimeMillis(System.currentTimeMillis());
     }
 
+    /**
+     * @return {@code localTimeNanos + clockOffsetNanos} corrected by drift accumulated since response
+     * @see #globalTimeMillis(long)
+     */
+    public long globalTimeNanos(long localTimeNanos) {
+        return localTimeNanos + clockOffsetNanos + (long) (drift * (localTimeNanos - responseTimeNanos));
+    }
+
+    /**
+     * Converts local times in given range of array to global times in place, same as calling
+     * {@link #globalTimeMillis(long)} for each element but much faster for large batches.
+     *
+     * @throws IndexOutOfBoundsException if range is out of array bounds
+     */
+    public void globalTimeMillis(long[] localTimesMillis, int offset, int length) {
+        checkRange(localTimesMillis.length, offset, length);
+        convert(localTimesMillis, offset, offset + length, clockOffset, responseTimeMillis);
+    }
+
+    /**
+     * Converts local times between position and limit of buffer to global times in place.
+     * Position and limit are left intact. Direct buffers are converted faster in native byte order.
+     *
+     * @see #globalTimeMillis(long[], int, int)
+     */
+    public void globalTimeMillis(LongBuffer localTimesMillis) {
+        convert(localTimesMillis, clockOffset, responseTimeMillis);
+    }
+
+    /**
+     * Same as {@link #globalTimeMillis(long[], int, int)} in nanoseconds.
+     *
+     * @throws IndexOutOfBoundsException if range is out of array bounds
+     */
+    public void globalTimeNanos(long[] localTimesNanos, int offset, int length) {
+        checkRange(localTimesNanos.length, offset, length);
+        convert(localTimesNanos, offset, offset + length, clockOffsetNanos, responseTimeNanos);
+    }
+
+    /**
+     * Same as {@link #globalTimeMillis(LongBuffer)} in nanoseconds.
+     */
+    public void globalTimeNanos(LongBuffer localTimesNanos) {
+        convert(localTimesNanos, clockOffsetNanos, responseTimeNanos);
+    }
+
+    // keep loops trivial so that JIT unrolls and vectorizes them
+    private void convert(long[] times, int start, int end, long offset, long origin) {
+        if (drift == 0) {
+            for (int i = start; i < end; i++) {
+                times[i] += offset;
+            }
+        } else {
+            final double drift = this.drift;
+            for (int i = start; i < end; i++) {
+                final long time = times[i];
+                times[i] = time + offset + (long) (drift * (time - origin));
+            }
+        }
+    }
+
+    private void convert(LongBuffer times, long offset, long origin) {
+        if (times.hasArray()) {
+            final int start = times.arrayOffset() + times.position();
+            convert(times.array(), start, start + times.remaining(), offset, origin);
+            return;
+        }
+        final int end = times.limit();
+        if (drift == 0) {
+            for (int i = times.position(); i < end; i++) {
+                times.put(i, times.get(i) + offset);
+            }
+        } else {
+            final double drift = this.drift;
+            for (int i = times.position(); i < end; i++) {
+                final long time = times.get(i);
+                times.put(i, time + offset + (long) (drift * (time - origin)));
+            }
+        }
+    }
+
+    private static void checkRange(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + arrayLength);
+        }
+    }
+
+    /**
+     * Same as {@link #currentGlobalTimeMillis()} in nanoseconds. Resolution is nanoseconds only if response was
+     * received with {@link SNTPClient.NanoMonotonicClock}, it is milliseconds otherwise. Does not allocate.
+     *
+     * @return current time on world clock in nanoseconds since epoch
+     */
+    public long currentGlobalTimeNanos() {
+        if (clock instanceof SNTPClient.NanoMonotonicClock) {
+            final long elapsed = ((SNTPClient.NanoMonotonicClock) clock).nanoTicks() - responseNanoTicks;
+            return responseTimeNanos + clockOffsetNanos + elapsed + (long) (drift * elapsed);
+        }
+        if (clock != null) {
+            final long elapsed = (clock.ticks() - responseTicks) * NANOS_PER_MILLI;
+            return responseTimeNanos + clockOffsetNanos + elapsed + (long) (drift * elapsed);
+        }
+        return globalTimeNanos(System.currentTimeMillis() * NANOS_PER_MILLI);
+    }
+
+    /**
+     * Age of monotonic response is not affected by wall clock changes. Responses without monotonic clock, e.g.
+     * read back from file or shared memory cache or parsed with {@link #unflattenFromString(String)}, are measured
+     * against current wall clock, so their age is off by however wall clock was changed since response.
+     *
+     * @return milliseconds elapsed since response measured with monotonic clock if there is one
+     * @see #isMonotonic()
+     */
+    public long getAgeMillis() {
+        if (clock != null) {
+            return clock.ticks() - responseTicks;
+        }
+        return System.currentTimeMillis() - responseTimeMillis;
+    }
+
+    /**
+     * @return ticks of {@link SNTPClient.MonotonicClock} at response or {@link #getResponseTimeMillis()} if response
+     * is not monotonic
+     */
+    public long getResponseTicks() {
+        return responseTicks;
+    }
+
+    /**
+     * @return {@code true} if response is anchored to {@link SNTPClient.MonotonicClock} ticks
+     * @see #rebase()
+     */
+    public boolean isMonotonic() {
+        return clock != null;
+    }
+
+    /**
+     * Monotonic response keeps correct global time after wall clock changes but its
+     * {@link #getResponseTimeMillis()} and {@link #getClockOffset()} refer to wall clock before the change.
+     * Use this method after wall clock change to get same response in terms of current wall clock, e.g. for
+     * persisting it.
+     *
+     * @return response with same global time but local time and offset recalculated against current wall clock
+     * or {@code this} if response is not monotonic
+     */
+    public SNTPResponse rebase() {
+        if (clock == null) {
+            return this;
+        }
+        final long elapsedNanos = clock instanceof SNTPClient.NanoMonotonicClock
+                ? ((SNTPClient.NanoMonotonicClock) clock).nanoTicks() - responseNanoTicks
+                : (clock.ticks() - responseTicks) * NANOS_PER_MILLI;
+        final long localTimeNanos = System.currentTimeMillis() * NANOS_PER_MILLI - elapsedNanos;
+        final long globalTimeNanos = responseTimeNanos + clockOffsetNanos;
+
+        return new SNTPResponse(localTimeNanos, globalTimeNanos - localTimeNanos, roundTripDelayNanos, dispersionNanos, drift, clock, responseTicks, responseNanoTicks);
+    }
+
     /**
      * Serializes response for {@link #unflattenFromString(String)}
      */
     public String flattenToString() {
-        final long sys = getResponseTimeMillis();
-        final long ntp = globalTimeMillis(sys);
-        final long off = getClockOffset();
+        final char[] buffer = new char[MAX_FLATTENED_LENGTH];
+        return new String(buffer, 0, flattenTo(buffer, 0));
+    }
 
-        final String sysStr = flattenTimestampToString(sys);
-        final String ntpStr = flattenTimestampToString(ntp);
+    /**
+     * Serializes response same way as {@link #flattenToString()} without allocations.
+     * Buffer must have at least {@link #MAX_FLATTENED_LENGTH} chars available at given offset.
+     *
+     * @return offset right after written chars
+     */
+    public int flattenTo(char[] buffer, int offset) {
+        final long sys = responseTimeNanos;
+        final long ntp = sys + clockOffsetNanos;
+
+        offset = append(SYS, buffer, offset);
+        offset = SNTPFormat.formatTimestampNanos(sys, buffer, offset);
+        offset = append(NTP, buffer, offset);
+        offset = SNTPFormat.formatTimestampNanos(ntp, buffer, offset);
+        offset = append(OFF, buffer, offset);
+        offset = SNTPFormat.formatMillis(clockOffsetNanos, buffer, offset);
+        if (roundTripDelayNanos != UNKNOWN) {
+            offset = append(DEL, buffer, offset);
+            offset = SNTPFormat.formatMillis(roundTripDelayNanos, buffer, offset);
+            offset = append(DIS, buffer, offset);
+            offset = SNTPFormat.formatMillis(dispersionNanos, buffer, offset);
+        }
+        if (drift != 0) {
+            offset = append(PPB, buffer, offset);
+            offset = SNTPFormat.formatLong(Math.round(drift * 1e9), buffer, offset);
+        }
+        return offset;
+    }
 
-        return String.format(Locale.US, FORMAT, sysStr, ntpStr, off);
+    private static int append(String string, char[] buffer, int offset) {
+        string.getChars(0, string.length(), buffer, offset);
+        return offset + string.length();
     }
 
     /**
      * Serializes timestamp for {@link #unflattenTimestampFromString(String)}
      */
     public static String flattenTimestampToString(long timeMillis) {
-        return DATE_FORMAT.format(new Date(timeMillis));
+        final char[] buffer = new char[SNTPFormat.TIMESTAMP_LENGTH];
+        return new String(buffer, 0, SNTPFormat.formatTimestamp(timeMillis, buffer, 0));
     }
 
     /**
@@ -91,25 +383,56 @@ public final class SNTPResponse {
      * @throws ParseException when gievn string is malformed
      */
     public static SNTPResponse unflattenFromString(String string) throws ParseException {
-        final Matcher matcher = PATTERN.matcher(string);
+        return unflattenFrom(string, 0, string.length());
+    }
 
-        if (!matcher.matches()) {
-            throw new ParseException("malformed input " + string, 0);
-        }
+    /**
+     * Parses response serialized by {@link #flattenTo(char[], int)} from given range of chars
+     * without intermediate strings.
+     *
+     * @throws ParseException when gievn chars are malformed
+     */
+    public static SNTPResponse unflattenFrom(CharSequence chars, int start, int end) throws ParseException {
+        int offset = SNTPFormat.expect(chars, start, end, SYS);
+        int tokenEnd = SNTPFormat.tokenEnd(chars, offset, end);
+        final long sys = SNTPFormat.parseTimestampNanos(chars, offset, tokenEnd);
 
-        final String sysStr = matcher.group(1);
-        final String ntpStr = matcher.group(2);
-        final String offStr = matcher.group(3);
+        offset = SNTPFormat.expect(chars, tokenEnd, end, NTP);
+        tokenEnd = SNTPFormat.tokenEnd(chars, offset, end);
+        final long ntp = SNTPFormat.parseTimestampNanos(chars, offset, tokenEnd);
 
-        final long sys = unflattenTimestampFromString(sysStr);
-        final long ntp = unflattenTimestampFromString(ntpStr);
-        final long off = unflattenLongFromString(offStr);
+        offset = SNTPFormat.expect(chars, tokenEnd, end, OFF);
+        tokenEnd = SNTPFormat.tokenEnd(chars, offset, end);
+        final long off = SNTPFormat.parseMillis(chars, offset, tokenEnd);
 
         if (sys + off != ntp) {
-            throw new ParseException("Suspicious offset: " + off, matcher.end(3));
+            throw new ParseException("Suspicious offset: " + off, tokenEnd);
         }
 
-        return create(sys, ntp);
+        long del = UNKNOWN;
+        long dis = UNKNOWN;
+        if (end - tokenEnd > 1 && chars.charAt(tokenEnd + 1) == 'd') {
+            offset = SNTPFormat.expect(chars, tokenEnd, end, DEL);
+            tokenEnd = SNTPFormat.tokenEnd(chars, offset, end);
+            del = SNTPFormat.parseMillis(chars, offset, tokenEnd);
+
+            offset = SNTPFormat.expect(chars, tokenEnd, end, DIS);
+            tokenEnd = SNTPFormat.tokenEnd(chars, offset, end);
+            dis = SNTPFormat.parseMillis(chars, offset, tokenEnd);
+        }
+
+        long ppb = 0;
+        if (tokenEnd < end) {
+            offset = SNTPFormat.expect(chars, tokenEnd, end, PPB);
+            tokenEnd = SNTPFormat.tokenEnd(chars, offset, end);
+            ppb = SNTPFormat.parseLong(chars, offset, tokenEnd);
+        }
+
+        if (tokenEnd != end) {
+            throw new ParseException("unexpected trailing chars", tokenEnd);
+        }
+
+        return unflattenNanos(sys, off, del, dis, ppb / 1e9);
     }
 
     /**
@@ -118,22 +441,59 @@ public final class SNTPResponse {
      * @throws ParseException when gievn string is malformed
      */
     public static long unflattenTimestampFromString(String string) throws ParseException {
-        return DATE_FORMAT.parse(string).getTime();
+        return SNTPFormat.parseTimestamp(string, 0, string.length());
     }
 
-    private static long unflattenLongFromString(String string) throws ParseException {
-        return NUMBER_FORMAT.parse(string).longValue();
+    /**
+     * Restores response from its fields, e.g. persisted in binary form. Restored response is not monotonic.
+     *
+     * @see #getResponseTimeMillis()
+     * @see #getClockOffset()
+     * @see #getRoundTripDelay()
+     * @see #getDispersion()
+     * @see #getDrift()
+     */
+    public static SNTPResponse unflatten(long responseTimeMillis, long clockOffset, long roundTripDelay, long dispersion, double drift) {
+        return unflattenNanos(responseTimeMillis * NANOS_PER_MILLI, clockOffset * NANOS_PER_MILLI,
+                roundTripDelay != UNKNOWN ? roundTripDelay * NANOS_PER_MILLI : UNKNOWN,
+                dispersion != UNKNOWN ? dispersion * NANOS_PER_MILLI : UNKNOWN, drift);
     }
 
-    static SNTPResponse create(long localTimeMillis, long globalTimeMillis) {
-        final long clockOffset = globalTimeMillis - localTimeMillis;
+    /**
+     * Same as {@link #unflatten(long, long, long, long, double)} with nanosecond values.
+     *
+     * @see #getResponseTimeNanos()
+     * @see #getClockOffsetNanos()
+     * @see #getRoundTripDelayNanos()
+     * @see #getDispersionNanos()
+     */
+    public static SNTPResponse unflattenNanos(long responseTimeNanos, long clockOffsetNanos, long roundTripDelayNanos, long dispersionNanos, double drift) {
+        return new SNTPResponse(responseTimeNanos, clockOffsetNanos, roundTripDelayNanos, dispersionNanos, drift, null, toMillis(responseTimeNanos), responseTimeNanos);
+    }
 
-        return new SNTPResponse(localTimeMillis, clockOffset);
+    static SNTPResponse create(long localTimeMillis, long globalTimeMillis) {
+        return unflatten(localTimeMillis, globalTimeMillis - localTimeMillis, UNKNOWN, UNKNOWN, 0);
     }
 
-    static SNTPResponse create(long originateTimeMillis, long receiveTimeMillis, long transmitTimeMillis, long responseTimeMillis) {
-        final long clockOffset = ((receiveTimeMillis - originateTimeMillis) + (transmitTimeMillis - responseTimeMillis)) / 2;
+    /**
+     * @param originateTimeMillis wall clock time of request
+     * @param elapsedNanos        time between request and response measured with monotonic clock
+     * @param receiveTimeNanos    receive timestamp of server
+     * @param transmitTimeNanos   transmit timestamp of server
+     */
+    static SNTPResponse create(long originateTimeMillis, long elapsedNanos, long receiveTimeNanos, long transmitTimeNanos, long dispersionNanos,
+                               SNTPClient.MonotonicClock clock, long responseTicks, long responseNanoTicks) {
+        final long originateTimeNanos = originateTimeMillis * NANOS_PER_MILLI;
+        final long responseTimeNanos = originateTimeNanos + elapsedNanos;
+        final long clockOffsetNanos = ((receiveTimeNanos - originateTimeNanos) + (transmitTimeNanos - responseTimeNanos)) / 2;
+        final long roundTripDelayNanos = Math.max(elapsedNanos - (transmitTimeNanos - receiveTimeNanos), 0);
+
+        return new SNTPResponse(responseTimeNanos, clockOffsetNanos, roundTripDelayNanos, dispersionNanos, 0,
+                clock, clock != null ? responseTicks : toMillis(responseTimeNanos), responseNanoTicks);
+    }
 
-        return new SNTPResponse(responseTimeMillis, clockOffset);
+    private static long toMillis(long nanos) {
+        final long q = nanos / NANOS_PER_MILLI;
+        return nanos % NANOS_PER_MILLI < 0 ? q - 1 : q;
     }
 }
@@ -0,0 +1,27 @@
+package io.github.eterverda.sntp;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Threads for blocking requests. Multi-release jar replaces this class with one using virtual threads on Java 21.
+ */
+final class SNTPThreads {
+    private SNTPThreads() {
+    }
+
+    /**
+     * @return unbounded executor of daemon threads that do not keep JVM alive
+     */
+    static ExecutorService newExecutor(final String name) {
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
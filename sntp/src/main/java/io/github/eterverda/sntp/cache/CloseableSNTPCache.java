@@ -0,0 +1,16 @@
+package io.github.eterverda.sntp.cache;
+
+import java.io.Closeable;
+
+/**
+ * Cache with background activity, e.g. refresh of response, that is stopped by {@link #close()}.
+ *
+ * @see SNTPCacheBuilder#buildCloseable()
+ */
+public interface CloseableSNTPCache extends SNTPCache, Closeable {
+    /**
+     * Stops background activity. Cache still serves and stores responses put into it.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,101 @@
+package io.github.eterverda.sntp.cache;
+
+import io.github.eterverda.sntp.SNTPResponse;
+
+/**
+ * Estimates frequency error of local clock by least squares fit of offset against local time over last
+ * {@link #SIZE} responses and passes response with {@link SNTPResponse#getDrift()} to delegate.
+ */
+final class DriftingSNTPCache implements SNTPCache {
+    public static final int SIZE = 8;
+
+    /**
+     * Responses spanning less than this give too noisy estimate.
+     */
+    public static final long MIN_SPAN = 60 * 1000;
+
+    /**
+     * Frequency tolerance of NTP, larger estimate means something is broken.
+     */
+    public static final double MAX_DRIFT = 500e-6;
+
+    private final SNTPCache delegate;
+
+    // offset is measured against monotonic ticks so wall clock changes do not show up as drift
+    private final long[] ticks = new long[SIZE];
+    private final long[] offsets = new long[SIZE];
+    private int next;
+    private int count;
+    private boolean monotonic;
+
+    public DriftingSNTPCache(SNTPCache delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public SNTPResponse get() {
+        return delegate.get();
+    }
+
+    @Override
+    public synchronized void put(SNTPResponse response) {
+        if (response == null) {
+            count = 0;
+            delegate.put(null);
+            return;
+        }
+
+        final long x = response.getResponseTicks();
+        final long y = response.getResponseTimeMillis() + response.getClockOffset() - x;
+
+        if (count > 0 && response.isMonotonic() && !monotonic) {
+            // responses restored from disk are anchored to wall clock, move them to ticks of this process
+            // assuming wall clock was not set since then
+            final long shift = x - response.getResponseTimeMillis();
+            for (int i = 0; i < SIZE; i++) {
+                ticks[i] += shift;
+                offsets[i] -= shift;
+            }
+            monotonic = true;
+        }
+        final long last = count > 0 ? ticks[(next - 1 + SIZE) % SIZE] : Long.MIN_VALUE;
+        if (count > 0 && (response.isMonotonic() != monotonic || x < last)) {
+            count = 0; // different time base, e.g. process restarted
+        }
+        if (count == 0 || x != last) {
+            ticks[next] = x;
+            offsets[next] = y;
+            next = (next + 1) % SIZE;
+            count = Math.min(count + 1, SIZE);
+            monotonic = response.isMonotonic();
+        }
+
+        delegate.put(response.withDrift(drift()));
+    }
+
+    private double drift() {
+        if (count < 2) {
+            return 0;
+        }
+        final int first = (next - count + SIZE) % SIZE;
+        final long x0 = ticks[first];
+        final long y0 = offsets[first];
+        if (ticks[(next - 1 + SIZE) % SIZE] - x0 < MIN_SPAN) {
+            return 0;
+        }
+
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (int n = 0; n < count; n++) {
+            final int i = (first + n) % SIZE;
+            final double x = ticks[i] - x0;
+            final double y = offsets[i] - y0;
+            sx += x;
+            sy += y;
+            sxx += x * x;
+            sxy += x * y;
+        }
+        final double slope = (count * sxy - sx * sy) / (count * sxx - sx * sx);
+
+        return Math.max(-MAX_DRIFT, Math.min(MAX_DRIFT, slope));
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.eterverda.sntp.cache;
 
+import io.github.eterverda.sntp.SNTPListener;
 import io.github.eterverda.sntp.SNTPResponse;
 
 final class ExpiringSNTPCache implements SNTPCache {
@@ -7,29 +8,70 @@ final class ExpiringSNTPCache implements SNTPCache {
 
     private final SNTPCache delegate;
     private final long expirationInterval;
+    private final SNTPListener listener;
+    private final boolean shared;
+
+    private final ResponseReference snapshot = new ResponseReference(null);
+    private volatile SNTPResponse expired;
 
     public ExpiringSNTPCache(SNTPCache delegate, long expirationInterval) {
+        this(delegate, expirationInterval, null, false);
+    }
+
+    /**
+     * @param shared delegate may be changed by other processes, so its response is read every time instead of
+     *               being kept in snapshot
+     */
+    public ExpiringSNTPCache(SNTPCache delegate, long expirationInterval, SNTPListener listener, boolean shared) {
         this.delegate = delegate;
         this.expirationInterval = expirationInterval;
+        this.listener = listener;
+        this.shared = shared;
     }
 
     @Override
     public SNTPResponse get() {
-        final SNTPResponse response = delegate.get();
+        final SNTPResponse snapshot = this.snapshot.get();
+        if (snapshot != null && !isExpired(snapshot)) {
+            return snapshot;
+        }
+        final SNTPResponse response = shared ? delegate.get() : load();
         if (response == null) {
             return null;
-        } else if (isExpired(response)) {
+        }
+        if (isExpired(response)) {
+            if (listener != null && expired != response) {
+                expired = response;
+                listener.onCacheExpired(response);
+            }
             return null;
         }
         return response;
     }
 
     @Override
-    public void put(SNTPResponse response) {
+    public synchronized void put(SNTPResponse response) {
         delegate.put(response);
+        if (!shared) {
+            // layers below may keep another response, e.g. clock filter keeps one with lower delay
+            snapshot.set(delegate.get());
+        }
+    }
+
+    /**
+     * Under lock of {@link #put(SNTPResponse)} so response read from delegate cannot overwrite newer one or bring
+     * back cleared one.
+     */
+    private synchronized SNTPResponse load() {
+        final SNTPResponse response = delegate.get();
+        snapshot.set(response);
+        return response;
     }
 
+    /**
+     * Age is measured with monotonic clock of response if there is one so wall clock changes do not matter.
+     */
     private boolean isExpired(SNTPResponse response) {
-        return response.getResponseTimeMillis() + expirationInterval < System.currentTimeMillis();
+        return response.getAgeMillis() > expirationInterval;
     }
 }
@@ -0,0 +1,67 @@
+package io.github.eterverda.sntp.cache;
+
+import io.github.eterverda.sntp.SNTPResponse;
+
+/**
+ * Clock filter as in RFC 5905: keeps last {@link #SIZE} responses and passes the one with the lowest
+ * round-trip delay to delegate, so single response delayed by congested path does not spoil good one.
+ */
+final class FilteringSNTPCache implements SNTPCache {
+    public static final int SIZE = 8;
+
+    private final SNTPCache delegate;
+    private final long maxAge;
+
+    private final SNTPResponse[] responses = new SNTPResponse[SIZE];
+    private final long[] delays = new long[SIZE];
+    private int next;
+
+    /**
+     * @param maxAge responses older than this are not taken into account
+     */
+    public FilteringSNTPCache(SNTPCache delegate, long maxAge) {
+        this.delegate = delegate;
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    public SNTPResponse get() {
+        return delegate.get();
+    }
+
+    @Override
+    public synchronized void put(SNTPResponse response) {
+        if (response == null) {
+            for (int i = 0; i < SIZE; i++) {
+                responses[i] = null;
+            }
+            delegate.put(null);
+            return;
+        }
+
+        final long delay = response.getRoundTripDelayNanos();
+        responses[next] = response;
+        delays[next] = delay == SNTPResponse.UNKNOWN ? Long.MAX_VALUE : delay;
+        next = (next + 1) % SIZE;
+
+        delegate.put(best(response));
+    }
+
+    private SNTPResponse best(SNTPResponse latest) {
+        SNTPResponse best = latest;
+        long bestDelay = Long.MAX_VALUE;
+        // walk from newest to oldest so newer response wins on equal delays
+        for (int n = 1; n <= SIZE; n++) {
+            final int i = (next - n + SIZE) % SIZE;
+            final SNTPResponse response = responses[i];
+            if (response == null) {
+                break;
+            }
+            if (delays[i] < bestDelay && response.getAgeMillis() <= maxAge) {
+                best = response;
+                bestDelay = delays[i];
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,40 @@
+package io.github.eterverda.sntp.cache;
+
+import io.github.eterverda.sntp.SNTPListener;
+import io.github.eterverda.sntp.SNTPResponse;
+
+/**
+ * Reports hits and misses of whole cache chain. Only built when there is a listener.
+ */
+final class ListeningSNTPCache implements CloseableSNTPCache {
+    private final SNTPCache delegate;
+    private final SNTPListener listener;
+
+    public ListeningSNTPCache(SNTPCache delegate, SNTPListener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    @Override
+    public SNTPResponse get() {
+        final SNTPResponse response = delegate.get();
+        if (response != null) {
+            listener.onCacheHit();
+        } else {
+            listener.onCacheMiss();
+        }
+        return response;
+    }
+
+    @Override
+    public void put(SNTPResponse response) {
+        delegate.put(response);
+    }
+
+    @Override
+    public void close() {
+        if (delegate instanceof CloseableSNTPCache) {
+            ((CloseableSNTPCache) delegate).close();
+        }
+    }
+}
@@ -4,21 +4,22 @@ import io.github.eterverda.sntp.SNTPResponse;
 
 final class MemorySNTPCache implements SNTPCache {
     private final SNTPCache delegate;
-    private SNTPResponse response;
+    private final ResponseReference response;
 
     public MemorySNTPCache(SNTPCache delegate, SNTPResponse initialResponse) {
         this.delegate = delegate;
-        this.response = initialResponse;
+        this.response = new ResponseReference(initialResponse);
     }
 
     @Override
     public SNTPResponse get() {
+        final SNTPResponse response = this.response.get();
         if (response != null) {
             return response;
         }
         if (delegate != null) {
             final SNTPResponse delegateResponse = delegate.get();
-            response = delegateResponse;
+            this.response.set(delegateResponse);
             return delegateResponse;
         }
         return null;
@@ -29,6 +30,6 @@ final class MemorySNTPCache implements SNTPCache {
         if (delegate != null) {
             delegate.put(response);
         }
-        this.response = response;
+        this.response.set(response);
     }
 }
@@ -0,0 +1,152 @@
+package io.github.eterverda.sntp.cache;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.github.eterverda.sntp.SNTPCallback;
+import io.github.eterverda.sntp.SNTPClient;
+import io.github.eterverda.sntp.SNTPResponse;
+
+/**
+ * Refreshes cached response in background before it expires so no caller ever waits for network. Refresh goes
+ * on until {@link #close()}.
+ */
+final class RefreshingSNTPCache implements CloseableSNTPCache, SNTPCallback, Runnable {
+    public static final float DEFAULT_REFRESH_FRACTION = 0.8f;
+
+    private final SNTPCache delegate;
+    private final SNTPClient client;
+    private final long refreshInterval;
+    private final long retryInterval;
+    private final SharedMemorySNTPCache shared;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private ScheduledFuture<?> scheduled;
+    private volatile boolean closed;
+
+    /**
+     * @param shared cache shared with other processes or {@code null}, only process holding writer lock refreshes
+     *               it unless response is about to expire
+     */
+    public RefreshingSNTPCache(SNTPCache delegate, SNTPClient client, long refreshInterval, long retryInterval, SharedMemorySNTPCache shared) {
+        this.delegate = delegate;
+        this.client = client;
+        this.refreshInterval = refreshInterval;
+        this.retryInterval = Math.max(retryInterval, 1);
+        this.shared = shared;
+
+        schedule(delegate.get());
+    }
+
+    @Override
+    public SNTPResponse get() {
+        return delegate.get();
+    }
+
+    @Override
+    public void put(SNTPResponse response) {
+        delegate.put(response);
+        schedule(response);
+    }
+
+    /**
+     * Cancels scheduled refresh, request in flight if any is still put into cache.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        if (closed) {
+            return;
+        }
+        // someone else could put fresh response meanwhile
+        final SNTPResponse response = delegate.get();
+        if (response != null && response.getAgeMillis() < refreshInterval) {
+            schedule(response);
+            return;
+        }
+        if (shared != null && !shareRefresh()) {
+            return;
+        }
+        if (refreshing.compareAndSet(false, true)) {
+            client.executeAsync(this);
+        }
+    }
+
+    @Override
+    public void onResponse(SNTPResponse response) {
+        refreshing.set(false);
+        put(response);
+    }
+
+    @Override
+    public void onFailure(IOException exception) {
+        refreshing.set(false);
+        schedule(retryInterval);
+    }
+
+    /**
+     * @return {@code true} if this process should refresh shared response now
+     */
+    private boolean shareRefresh() {
+        final SNTPResponse response = shared.get();
+        if (response == null) {
+            return true;
+        }
+        final long age = response.getAgeMillis();
+        if (age < refreshInterval) {
+            // refreshed by other process
+            delegate.put(response);
+            schedule(response);
+            return false;
+        }
+        // let writer do its job, take over when it seems to be stuck
+        final long standbyInterval = refreshInterval + 2 * retryInterval;
+        if (!shared.tryAcquireWriter() && age < standbyInterval) {
+            schedule(standbyInterval - age);
+            return false;
+        }
+        return true;
+    }
+
+    private void schedule(SNTPResponse response) {
+        if (response == null) {
+            schedule(0);
+        } else {
+            schedule(Math.max(refreshInterval - response.getAgeMillis(), 0));
+        }
+    }
+
+    private synchronized void schedule(long delay) {
+        if (closed) {
+            return;
+        }
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        scheduled = Scheduler.INSTANCE.schedule(this, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class Scheduler {
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "SNTPCache");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.eterverda.sntp.cache;
+
+import io.github.eterverda.sntp.SNTPResponse;
+
+/**
+ * Publishes response to reading threads. Response is immutable so readers need nothing but the reference itself.
+ * Multi-release jar replaces this class with one using acquire and release access on Java 21.
+ */
+final class ResponseReference {
+    private volatile SNTPResponse response;
+
+    ResponseReference(SNTPResponse response) {
+        this.response = response;
+    }
+
+    SNTPResponse get() {
+        return response;
+    }
+
+    void set(SNTPResponse response) {
+        this.response = response;
+    }
+}
@@ -2,18 +2,36 @@ package io.github.eterverda.sntp.cache;
 
 import java.io.File;
 
+import io.github.eterverda.sntp.SNTPClient;
+import io.github.eterverda.sntp.SNTPListener;
 import io.github.eterverda.sntp.SNTPResponse;
 
 public class SNTPCacheBuilder {
     private File file;
+    private File sharedFile;
     private long expirationInterval = ExpiringSNTPCache.DEFAULT_EXPIRING_INTERVAL;
     private SNTPResponse initialResponse;
+    private boolean filtering;
+    private boolean driftCorrection;
+    private SNTPClient refreshClient;
+    private float refreshFraction = RefreshingSNTPCache.DEFAULT_REFRESH_FRACTION;
+    private SNTPListener listener;
+    private SNTPTimeline timeline;
 
     public SNTPCacheBuilder setFile(File file) {
         this.file = file;
         return this;
     }
 
+    /**
+     * Shares response with other processes on same machine through memory-mapped file. Takes precedence over
+     * {@link #setFile(File)} as shared file is persistent too.
+     */
+    public SNTPCacheBuilder setSharedFile(File sharedFile) {
+        this.sharedFile = sharedFile;
+        return this;
+    }
+
     public SNTPCacheBuilder setExpirationInterval(long expirationInterval) {
         if (expirationInterval < 0) {
             throw new IllegalArgumentException("expirationInterval < 0");
@@ -27,6 +45,69 @@ public class SNTPCacheBuilder {
         return this;
     }
 
+    /**
+     * Enables clock filter that keeps last 8 responses and serves one with the lowest round-trip delay among those
+     * put within refresh interval, or within half of expiration interval without refresh client. With refresh
+     * client cache is refreshed 8 times as often so that filter has responses to choose from.
+     */
+    public SNTPCacheBuilder setFiltering(boolean filtering) {
+        this.filtering = filtering;
+        return this;
+    }
+
+    /**
+     * Enables estimation of local clock frequency error from recent responses so that
+     * {@link SNTPResponse#globalTimeMillis(long)} stays accurate longer and expiration interval can be increased.
+     */
+    public SNTPCacheBuilder setDriftCorrection(boolean driftCorrection) {
+        this.driftCorrection = driftCorrection;
+        return this;
+    }
+
+    /**
+     * Enables background refresh of cached response before it expires. Refresh goes on until cache built with
+     * {@link #buildCloseable()} is closed.
+     *
+     * @param refreshClient client to perform background requests or {@code null} to disable refreshing
+     * @see #setRefreshFraction(float)
+     */
+    public SNTPCacheBuilder setRefreshClient(SNTPClient refreshClient) {
+        this.refreshClient = refreshClient;
+        return this;
+    }
+
+    /**
+     * @param refreshFraction fraction of expiration interval after which response is refreshed, 0.8 by default
+     * @see #setRefreshClient(SNTPClient)
+     */
+    public SNTPCacheBuilder setRefreshFraction(float refreshFraction) {
+        if (!(refreshFraction > 0 && refreshFraction <= 1)) {
+            throw new IllegalArgumentException("refreshFraction not in (0, 1]");
+        }
+        this.refreshFraction = refreshFraction;
+        return this;
+    }
+
+    /**
+     * @param listener observer of hits, misses, expirations and file errors, e.g.
+     *                 {@link io.github.eterverda.sntp.SNTPMetrics}, or {@code null} for none
+     */
+    public SNTPCacheBuilder setListener(SNTPListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Records every response in given timeline and restores last responses from it on start so that
+     * {@link #setFiltering(boolean)} and {@link #setDriftCorrection(boolean)} work right away.
+     *
+     * @param timeline open timeline or {@code null} for none
+     */
+    public SNTPCacheBuilder setTimeline(SNTPTimeline timeline) {
+        this.timeline = timeline;
+        return this;
+    }
+
     public static SNTPCache create() {
         return custom()
                 .build();
@@ -37,13 +118,99 @@ public class SNTPCacheBuilder {
     }
 
     public SNTPCache build() {
+        final SNTPCache cache = buildCache();
+        if (listener == null) {
+            return cache;
+        }
+        return new ListeningSNTPCache(cache, listener);
+    }
+
+    /**
+     * Same as {@link #build()} but background refresh of returned cache can be stopped. Closing cache without
+     * refresh client does nothing.
+     */
+    public CloseableSNTPCache buildCloseable() {
+        final SNTPCache cache = build();
+        if (cache instanceof CloseableSNTPCache) {
+            return (CloseableSNTPCache) cache;
+        }
+        return new NotClosingSNTPCache(cache);
+    }
+
+    private SNTPCache buildCache() {
         if (expirationInterval == 0) {
             return NoSNTPCache.INSTANCE;
         }
         if (expirationInterval == Long.MAX_VALUE) {
-            return buildMemoryCache();
+            return buildFilteringCache(buildSharedCache());
+        }
+        final SharedMemorySNTPCache shared = buildSharedCache();
+        final SNTPCache cache = new ExpiringSNTPCache(buildFilteringCache(shared), expirationInterval, listener, shared != null);
+        if (refreshClient == null) {
+            return cache;
+        }
+        final long refreshInterval = refreshInterval();
+        final long retryInterval = (expirationInterval - refreshInterval) / 4;
+        if (!filtering) {
+            return new RefreshingSNTPCache(cache, refreshClient, refreshInterval, retryInterval, shared);
         }
-        return new ExpiringSNTPCache(buildMemoryCache(), expirationInterval);
+        final long sampleInterval = sampleInterval();
+        return new RefreshingSNTPCache(cache, refreshClient, sampleInterval, Math.min(retryInterval, sampleInterval), shared);
+    }
+
+    private long refreshInterval() {
+        return (long) (expirationInterval * (double) refreshFraction);
+    }
+
+    private long sampleInterval() {
+        return Math.max(refreshInterval() / FilteringSNTPCache.SIZE, 1);
+    }
+
+    private SNTPCache buildFilteringCache(SharedMemorySNTPCache shared) {
+        final SNTPCache cache;
+        if (!filtering) {
+            cache = buildDriftingCache(shared);
+        } else {
+            cache = new FilteringSNTPCache(buildDriftingCache(shared), filterMaxAge());
+        }
+        if (timeline == null) {
+            return cache;
+        }
+        return new TimelineSNTPCache(cache, timeline);
+    }
+
+    /**
+     * Served response has to stay valid until next response arrives. With refresh client responses arrive every
+     * {@link #sampleInterval()}, so the filter window covers last 8 of them and still expires no later than next
+     * response. Otherwise responses arrive on misses only and filter works only if they are put more often.
+     */
+    private long filterMaxAge() {
+        if (refreshClient == null || expirationInterval == Long.MAX_VALUE) {
+            return expirationInterval / 2;
+        }
+        return refreshInterval() - sampleInterval();
+    }
+
+    private SNTPCache buildDriftingCache(SharedMemorySNTPCache shared) {
+        final SNTPCache storage = shared != null ? shared : buildMemoryCache();
+        if (!driftCorrection) {
+            return storage;
+        }
+        return new DriftingSNTPCache(storage);
+    }
+
+    /**
+     * Shared cache is not wrapped in memory cache since the latter would hide responses of other processes.
+     */
+    private SharedMemorySNTPCache buildSharedCache() {
+        if (sharedFile == null) {
+            return null;
+        }
+        final SharedMemorySNTPCache shared = new SharedMemorySNTPCache(sharedFile, listener);
+        if (initialResponse != null && shared.get() == null) {
+            shared.put(initialResponse);
+        }
+        return shared;
     }
 
     private MemorySNTPCache buildMemoryCache() {
@@ -54,6 +221,28 @@ public class SNTPCacheBuilder {
         if (file == null) {
             return null;
         }
-        return new SimpleFileSNTPCache(file);
+        return new SimpleFileSNTPCache(file, listener);
+    }
+
+    private static final class NotClosingSNTPCache implements CloseableSNTPCache {
+        private final SNTPCache delegate;
+
+        NotClosingSNTPCache(SNTPCache delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public SNTPResponse get() {
+            return delegate.get();
+        }
+
+        @Override
+        public void put(SNTPResponse response) {
+            delegate.put(response);
+        }
+
+        @Override
+        public void close() {
+        }
     }
 }
@@ -0,0 +1,300 @@
+package io.github.eterverda.sntp.cache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.eterverda.sntp.SNTPResponse;
+
+/**
+ * Append-only log of responses in memory-mapped file, so local time recorded in the past can be converted
+ * to global time with offset that was in effect back then:
+ * <pre>
+ *  0 int    magic "SNTL"
+ *  4 int    version
+ *  8 int    capacity
+ * 12 int    count, written after record so torn append is not seen
+ * 16        records sorted by response time, each of them
+ *     long  response time in nanoseconds
+ *     long  clock offset in nanoseconds
+ *     long  round-trip delay in nanoseconds
+ *     long  dispersion in nanoseconds
+ * </pre>
+ * Records older than retention interval before the latest one are dropped on append. When log is full older half
+ * of the rest is thinned keeping response with lower round-trip delay of each pair. Compaction happens in place,
+ * if it is interrupted out-of-order records are dropped on next open.
+ * <p/>
+ * Only one instance in one process may have file open at a time. Pass it to
+ * {@link SNTPCacheBuilder#setTimeline(SNTPTimeline)} to record every response and to warm up clock filter and
+ * drift correction after restart.
+ */
+public final class SNTPTimeline implements Closeable {
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final long DEFAULT_RETENTION = 30L * 24 * 60 * 60 * 1000;
+
+    static final int MAGIC = 0x534E544C; // "SNTL"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 32;
+
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int COUNT_OFFSET = 12;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final int capacity;
+    private final long retentionNanos;
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final MappedByteBuffer buffer;
+    private int count;
+
+    public SNTPTimeline(File file) throws IOException {
+        this(file, DEFAULT_CAPACITY, DEFAULT_RETENTION);
+    }
+
+    /**
+     * @param capacity  maximum number of records in file
+     * @param retention records older than this many milliseconds before the latest one are dropped
+     * @throws IOException if file cannot be mapped or it is open already
+     */
+    @SuppressWarnings("resource")
+    public SNTPTimeline(File file, int capacity, long retention) throws IOException {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity < 2");
+        }
+        if (retention <= 0) {
+            throw new IllegalArgumentException("retention <= 0");
+        }
+        this.capacity = capacity;
+        this.retentionNanos = retention > Long.MAX_VALUE / NANOS_PER_MILLI ? Long.MAX_VALUE : retention * NANOS_PER_MILLI;
+
+        final File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("cannot make directory " + dir);
+        }
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        try {
+            lock = lock(channel, file);
+            buffer = map(channel, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static FileLock lock(FileChannel channel, File file) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException("timeline " + file + " is open already");
+        }
+        return lock;
+    }
+
+    private MappedByteBuffer map(FileChannel channel, int capacity) throws IOException {
+        final long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        long[] records = null;
+
+        if (channel.size() >= HEADER_SIZE) {
+            final MappedByteBuffer old = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final int oldCapacity = old.getInt(CAPACITY_OFFSET);
+            if (old.getInt(0) == MAGIC && old.getInt(4) == VERSION && oldCapacity > 0
+                    && channel.size() >= HEADER_SIZE + (long) oldCapacity * RECORD_SIZE) {
+                final int oldCount = Math.max(0, Math.min(old.getInt(COUNT_OFFSET), oldCapacity));
+                final int keep = Math.min(oldCount, capacity);
+                records = new long[keep * 4];
+                for (int i = 0; i < records.length; i++) {
+                    records[i] = old.getLong(HEADER_SIZE + (oldCount - keep) * RECORD_SIZE + i * 8);
+                }
+            }
+        }
+        if (channel.size() != size) {
+            channel.truncate(Math.min(channel.size(), size));
+        }
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+
+        // records were read before remapping since they move when capacity changes, this also drops out-of-order
+        // records left by interrupted compaction or by garbage in file
+        int count = 0;
+        long last = Long.MIN_VALUE;
+        for (int i = 0; records != null && i < records.length; i += 4) {
+            if (records[i] <= last) {
+                continue;
+            }
+            last = records[i];
+            final int offset = HEADER_SIZE + count * RECORD_SIZE;
+            buffer.putLong(offset, records[i]);
+            buffer.putLong(offset + 8, records[i + 1]);
+            buffer.putLong(offset + 16, records[i + 2]);
+            buffer.putLong(offset + 24, records[i + 3]);
+            count++;
+        }
+        buffer.putInt(COUNT_OFFSET, count);
+        this.count = count;
+        return buffer;
+    }
+
+    /**
+     * Appends response to the end of log. If response time is not after the latest record, e.g. because wall clock
+     * was set back, records at and after that time are dropped since they cannot be told apart anymore.
+     */
+    public synchronized void append(SNTPResponse response) {
+        final long time = response.getResponseTimeNanos();
+        int count = this.count;
+        while (count > 0 && timeAt(count - 1) >= time) {
+            count--;
+        }
+        if (count < this.count) {
+            // published before dropped records are overwritten so torn append is not seen
+            this.count = count;
+            buffer.putInt(COUNT_OFFSET, count);
+        }
+        if (count == capacity || count > 0 && timeAt(0) < time - retentionNanos) {
+            count = compact(count, time);
+        }
+        final int offset = HEADER_SIZE + count * RECORD_SIZE;
+        buffer.putLong(offset, time);
+        buffer.putLong(offset + 8, response.getClockOffsetNanos());
+        buffer.putLong(offset + 16, response.getRoundTripDelayNanos());
+        buffer.putLong(offset + 24, response.getDispersionNanos());
+        this.count = count + 1;
+        buffer.putInt(COUNT_OFFSET, this.count);
+    }
+
+    /**
+     * @return number of records
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Finds record in effect at given local time, i.e. the latest one not after it. Drift of returned response
+     * is slope of offset towards the next record so {@link SNTPResponse#globalTimeMillis(long)} interpolates
+     * between them.
+     *
+     * @param localTimeMillis time on local wall clock in the past
+     * @return response that was in effect or {@code null} if given time is before the first record
+     */
+    public synchronized SNTPResponse responseAt(long localTimeMillis) {
+        final int i = floorIndex(localTimeMillis * NANOS_PER_MILLI);
+        if (i < 0) {
+            return null;
+        }
+        double drift = 0;
+        if (i + 1 < count) {
+            final double slope = (double) (offsetAt(i + 1) - offsetAt(i)) / (timeAt(i + 1) - timeAt(i));
+            drift = Math.max(-DriftingSNTPCache.MAX_DRIFT, Math.min(DriftingSNTPCache.MAX_DRIFT, slope));
+        }
+        return response(i).withDrift(drift);
+    }
+
+    /**
+     * @return up to given number of the latest records oldest first, they are not monotonic
+     */
+    public synchronized List<SNTPResponse> tail(int limit) {
+        final int n = Math.min(limit, count);
+        final List<SNTPResponse> responses = new ArrayList<>(n);
+        for (int i = count - n; i < count; i++) {
+            responses.add(response(i));
+        }
+        return responses;
+    }
+
+    /**
+     * Releases file so that it can be open again. Mapping itself is released by garbage collector.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            lock.release();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Drops records older than retention and thins the rest if log is full.
+     *
+     * @param latest time of record to be appended in nanoseconds
+     * @return number of records left
+     */
+    int compact(int count, long latest) {
+        int read = floorIndex(latest - retentionNanos - 1) + 1;
+        int write = 0;
+
+        // thin oldest records pairwise so that half of capacity is free
+        final int excess = count < capacity ? 0 : count - read - (capacity + 1) / 2;
+        for (int pair = 0; pair < excess; pair++, read += 2) {
+            copy(delayAt(read + 1) < delayAt(read) ? read + 1 : read, write++);
+        }
+        for (; read < count; read++) {
+            copy(read, write++);
+        }
+        this.count = write;
+        buffer.putInt(COUNT_OFFSET, write);
+        return write;
+    }
+
+    /**
+     * @return index of the latest record not after given time or -1
+     */
+    private int floorIndex(long timeNanos) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (timeAt(mid) <= timeNanos) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private void copy(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        final int src = HEADER_SIZE + from * RECORD_SIZE;
+        final int dst = HEADER_SIZE + to * RECORD_SIZE;
+        for (int i = 0; i < RECORD_SIZE; i += 8) {
+            buffer.putLong(dst + i, buffer.getLong(src + i));
+        }
+    }
+
+    private SNTPResponse response(int i) {
+        final int offset = HEADER_SIZE + i * RECORD_SIZE;
+        return SNTPResponse.unflattenNanos(buffer.getLong(offset), buffer.getLong(offset + 8),
+                buffer.getLong(offset + 16), buffer.getLong(offset + 24), 0);
+    }
+
+    private long timeAt(int i) {
+        return buffer.getLong(HEADER_SIZE + i * RECORD_SIZE);
+    }
+
+    private long offsetAt(int i) {
+        return buffer.getLong(HEADER_SIZE + i * RECORD_SIZE + 8);
+    }
+
+    private long delayAt(int i) {
+        final long delay = buffer.getLong(HEADER_SIZE + i * RECORD_SIZE + 16);
+        return delay == SNTPResponse.UNKNOWN ? Long.MAX_VALUE : delay;
+    }
+}
@@ -0,0 +1,258 @@
+package io.github.eterverda.sntp.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import io.github.eterverda.sntp.SNTPListener;
+import io.github.eterverda.sntp.SNTPResponse;
+
+/**
+ * Shares response between processes through small memory-mapped file:
+ * <pre>
+ *  0 int    magic "SNTS"
+ *  4 int    version
+ *  8 long   sequence, odd while write is in progress
+ * 16 long   response time in nanoseconds
+ * 24 long   clock offset in nanoseconds
+ * 32 long   round-trip delay in nanoseconds
+ * 40 long   dispersion in nanoseconds
+ * 48 double drift
+ * 56 int    1 if there is response, 0 otherwise
+ * 60 int    CRC32 of bytes 16..59
+ * </pre>
+ * Readers never lock: they retry until sequence is even and same before and after the read and checksum matches,
+ * so torn reads are detected even where stores to mapped memory may be reordered. Writers are serialized with
+ * {@link FileLock}, and since file locks are held on behalf of whole process, instances of same file in one process
+ * are serialized with common monitor too. One process at a time holds writer lock, see {@link #tryAcquireWriter()}.
+ */
+final class SharedMemorySNTPCache implements SNTPCache {
+    static final int MAGIC = 0x534E5453; // "SNTS"
+    static final int VERSION = 2;
+    static final int SIZE = 64;
+
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int PAYLOAD_OFFSET = 16;
+    private static final int CHECKSUM_OFFSET = 60;
+    private static final int PAYLOAD_SIZE = CHECKSUM_OFFSET - PAYLOAD_OFFSET;
+
+    private static final int MAX_READ_ATTEMPTS = 16;
+
+    private static final ConcurrentMap<String, Object> MONITORS = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final SNTPListener listener;
+
+    private volatile MappedByteBuffer buffer;
+    private FileChannel channel;
+    private Object monitor;
+    private FileLock writerLock;
+
+    private volatile Snapshot last;
+
+    public SharedMemorySNTPCache(File file) {
+        this(file, null);
+    }
+
+    public SharedMemorySNTPCache(File file, SNTPListener listener) {
+        this.file = file;
+        this.listener = listener;
+    }
+
+    @Override
+    public SNTPResponse get() {
+        final MappedByteBuffer buffer = buffer();
+        if (buffer == null) {
+            return null;
+        }
+        byte[] payload = null;
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            final long sequence = buffer.getLong(SEQUENCE_OFFSET);
+            final Snapshot last = this.last;
+            if (last != null && last.sequence == sequence) {
+                return last.response;
+            }
+            if ((sequence & 1) != 0) {
+                Thread.yield(); // writer is in progress
+                continue;
+            }
+            if (sequence == 0 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return null;
+            }
+            if (payload == null) {
+                payload = new byte[PAYLOAD_SIZE];
+            }
+            for (int i = 0; i < PAYLOAD_SIZE; i++) {
+                payload[i] = buffer.get(PAYLOAD_OFFSET + i);
+            }
+            final int checksum = buffer.getInt(CHECKSUM_OFFSET);
+            if (buffer.getLong(SEQUENCE_OFFSET) != sequence || checksum != checksum(payload)) {
+                continue;
+            }
+            final SNTPResponse response = decode(payload);
+            this.last = new Snapshot(sequence, response);
+            return response;
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void put(SNTPResponse response) {
+        final MappedByteBuffer buffer = buffer();
+        if (buffer == null) {
+            return;
+        }
+        final byte[] payload = encode(response);
+        try {
+            synchronized (monitor) {
+                final FileLock lock = channel.lock(0, SIZE, false);
+                try {
+                    write(buffer, payload);
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException e) {
+            onError(e);
+        } catch (OverlappingFileLockException e) {
+            // e.g. same file is reached by other path
+            onError(new IOException(e));
+        }
+    }
+
+    private static void write(MappedByteBuffer buffer, byte[] payload) {
+        final long sequence = buffer.getLong(SEQUENCE_OFFSET);
+        if ((sequence & 1) == 0 && sequence != 0 && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION) {
+            boolean same = true;
+            for (int i = 0; i < PAYLOAD_SIZE && same; i++) {
+                same = buffer.get(PAYLOAD_OFFSET + i) == payload[i];
+            }
+            if (same) {
+                return; // do not make readers decode same response again
+            }
+        }
+        // sequence may be odd if previous writer died in the middle
+        final long begin = sequence | 1;
+
+        buffer.putLong(SEQUENCE_OFFSET, begin);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        for (int i = 0; i < PAYLOAD_SIZE; i++) {
+            buffer.put(PAYLOAD_OFFSET + i, payload[i]);
+        }
+        buffer.putInt(CHECKSUM_OFFSET, checksum(payload));
+        buffer.putLong(SEQUENCE_OFFSET, begin + 1);
+    }
+
+    /**
+     * Makes this process the one that refreshes shared response. Writer lock is held until process exits so
+     * other processes take over only when writer is gone.
+     *
+     * @return {@code true} if this process is writer
+     */
+    public synchronized boolean tryAcquireWriter() {
+        if (writerLock != null) {
+            return true;
+        }
+        if (buffer() == null) {
+            return false;
+        }
+        try {
+            writerLock = channel.tryLock(SIZE, 1, false);
+        } catch (IOException | OverlappingFileLockException ignore) {
+        }
+        return writerLock != null;
+    }
+
+    private MappedByteBuffer buffer() {
+        final MappedByteBuffer buffer = this.buffer;
+        if (buffer != null) {
+            return buffer;
+        }
+        synchronized (this) {
+            if (this.buffer == null) {
+                this.buffer = map();
+            }
+            return this.buffer;
+        }
+    }
+
+    @SuppressWarnings("resource")
+    private MappedByteBuffer map() {
+        final File dir = file.getParentFile();
+        try {
+            if (dir != null && !dir.exists() && !dir.mkdirs()) {
+                throw new IOException("cannot make directory " + dir);
+            }
+            monitor = monitor(file.getCanonicalPath());
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+        } catch (IOException e) {
+            onError(e);
+            return null;
+        }
+    }
+
+    private static Object monitor(String path) {
+        final Object monitor = new Object();
+        final Object existing = MONITORS.putIfAbsent(path, monitor);
+        return existing != null ? existing : monitor;
+    }
+
+    private void onError(IOException e) {
+        if (listener != null) {
+            listener.onCacheError(e);
+        }
+    }
+
+    private static byte[] encode(SNTPResponse response) {
+        final ByteBuffer buffer = ByteBuffer.allocate(PAYLOAD_SIZE);
+        if (response != null) {
+            buffer.putLong(response.getResponseTimeNanos());
+            buffer.putLong(response.getClockOffsetNanos());
+            buffer.putLong(response.getRoundTripDelayNanos());
+            buffer.putLong(response.getDispersionNanos());
+            buffer.putDouble(response.getDrift());
+            buffer.putInt(1);
+        }
+        return buffer.array();
+    }
+
+    private static SNTPResponse decode(byte[] payload) {
+        final ByteBuffer buffer = ByteBuffer.wrap(payload);
+        if (buffer.getInt(40) == 0) {
+            return null;
+        }
+        final long sys = buffer.getLong(0);
+        final long off = buffer.getLong(8);
+        final long del = buffer.getLong(16);
+        final long dis = buffer.getLong(24);
+        final double drift = buffer.getDouble(32);
+
+        return SNTPResponse.unflattenNanos(sys, off, del, dis, drift);
+    }
+
+    private static int checksum(byte[] payload) {
+        final CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private static final class Snapshot {
+        final long sequence;
+        final SNTPResponse response;
+
+        Snapshot(long sequence, SNTPResponse response) {
+            this.sequence = sequence;
+            this.response = response;
+        }
+    }
+}
@@ -1,41 +1,101 @@
 package io.github.eterverda.sntp.cache;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.text.ParseException;
+import java.util.zip.CRC32;
 
+import io.github.eterverda.sntp.SNTPListener;
 import io.github.eterverda.sntp.SNTPResponse;
 
+/**
+ * Persists response in fixed-layout binary file read with single positional read:
+ * <pre>
+ *  0 int    magic "SNTP"
+ *  4 int    version
+ *  8 long   response time in nanoseconds
+ * 16 long   clock offset in nanoseconds
+ * 24 long   round-trip delay in nanoseconds
+ * 32 long   dispersion in nanoseconds
+ * 40 double drift
+ * 48 int    CRC32 of all above
+ * </pre>
+ * Files in former text format and in version 1 with same layout but millisecond values are migrated on first read.
+ * <p/>
+ * File is written aside and renamed over the old one so readers never see partially written file. Malformed files
+ * are deleted, but files that are too short are not since they may be in the middle of in-place write of older
+ * version.
+ */
 final class SimpleFileSNTPCache implements SNTPCache {
+    static final int MAGIC = 0x534E5450; // "SNTP"
+    static final int VERSION = 2;
+    static final int VERSION_MILLIS = 1;
+    static final int SIZE = 52;
+
+    private static final int CHECKSUM_OFFSET = SIZE - 4;
+    private static final Charset ASCII = Charset.forName("US-ASCII");
 
     private final File file;
+    private final SNTPListener listener;
 
     public SimpleFileSNTPCache(File file) {
+        this(file, null);
+    }
+
+    public SimpleFileSNTPCache(File file, SNTPListener listener) {
         this.file = file;
+        this.listener = listener;
     }
 
     @Override
     public SNTPResponse get() {
         try {
             return read(file);
-        } catch (IOException | ParseException e) {
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            if (listener != null) {
+                listener.onCacheError(e);
+            }
+            return null;
+        } catch (ParseException e) {
+            if (listener != null) {
+                listener.onCacheError(new IOException("malformed file " + file, e));
+            }
             return null;
         }
     }
 
     public static SNTPResponse read(File file) throws IOException, ParseException {
         if (!file.exists()) {
-            throw new IOException("file " + file + " does not exist");
+            throw new FileNotFoundException("file " + file + " does not exist");
         }
 
-        final String string = readString(file);
+        final ByteBuffer buffer = readBytes(file);
+        final boolean binary = buffer.remaining() >= 4 && buffer.getInt(0) == MAGIC;
+        if (buffer.remaining() < 4 || binary && buffer.remaining() != SIZE) {
+            // not deleted, older version may be writing it right now
+            throw new ParseException("unexpected size " + buffer.remaining(), 0);
+        }
 
         try {
-            return SNTPResponse.unflattenFromString(string);
+            if (binary) {
+                final SNTPResponse response = decode(buffer);
+                if (buffer.getInt(4) != VERSION) {
+                    write(file, response);
+                }
+                return response;
+            }
+            final SNTPResponse response = SNTPResponse.unflattenFromString(new String(buffer.array(), 0, buffer.limit(), ASCII).trim());
+            write(file, response);
+            return response;
+
         } catch (ParseException e) {
             if (!file.delete()) {
                 throw new IOException("cannot delete malformed file " + file, e);
@@ -45,55 +105,105 @@ final class SimpleFileSNTPCache implements SNTPCache {
     }
 
     @SuppressWarnings("TryFinallyCanBeTryWithResources")
-    private static String readString(File file) throws IOException {
-        final BufferedReader in = new BufferedReader(new FileReader(file));
+    private static ByteBuffer readBytes(File file) throws IOException {
+        final FileInputStream in = new FileInputStream(file);
         try {
-            final StringBuilder result = new StringBuilder(128); // should be enough for well-formed SNTPResponse
-            for(int i = in.read(); i >= 0; i = in.read()) {
-                final char c = (char) i;
-                result.append(c);
-            }
-            return result.toString().trim();
+            final FileChannel channel = in.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocate(128); // enough for binary and for well-formed text
+            channel.read(buffer, 0);
+            buffer.flip();
+            return buffer;
         } finally {
             in.close();
         }
     }
 
+    private static SNTPResponse decode(ByteBuffer buffer) throws ParseException {
+        final int version = buffer.getInt(4);
+        if (version != VERSION && version != VERSION_MILLIS) {
+            throw new ParseException("unsupported version " + version, 4);
+        }
+        final int checksum = buffer.getInt(CHECKSUM_OFFSET);
+        if (checksum != checksum(buffer)) {
+            throw new ParseException("checksum mismatch", CHECKSUM_OFFSET);
+        }
+
+        final long sys = buffer.getLong(8);
+        final long off = buffer.getLong(16);
+        final long del = buffer.getLong(24);
+        final long dis = buffer.getLong(32);
+        final double drift = buffer.getDouble(40);
+
+        if (version == VERSION_MILLIS) {
+            return SNTPResponse.unflatten(sys, off, del, dis, drift);
+        }
+        return SNTPResponse.unflattenNanos(sys, off, del, dis, drift);
+    }
+
     @Override
     public void put(SNTPResponse response) {
         try {
             write(file, response);
-        } catch (IOException ignore) {
+        } catch (IOException e) {
+            if (listener != null) {
+                listener.onCacheError(e);
+            }
         }
     }
 
     public static void write(File file, SNTPResponse response) throws IOException {
         if (response == null) {
-            if (!file.delete()) {
+            if (!file.delete() && file.exists()) {
                 throw new IOException("cannot delete file " + file);
             }
             return;
         }
 
-        final String string = response.flattenToString();
+        final ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, response.getResponseTimeNanos());
+        buffer.putLong(16, response.getClockOffsetNanos());
+        buffer.putLong(24, response.getRoundTripDelayNanos());
+        buffer.putLong(32, response.getDispersionNanos());
+        buffer.putDouble(40, response.getDrift());
+        buffer.putInt(CHECKSUM_OFFSET, checksum(buffer));
+
+        writeBytes(file, buffer);
+    }
 
-        writeString(file, string);
+    private static int checksum(ByteBuffer buffer) {
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, CHECKSUM_OFFSET);
+        return (int) crc.getValue();
     }
 
     @SuppressWarnings("TryFinallyCanBeTryWithResources")
-    private static void writeString(File file, String string) throws IOException {
+    private static void writeBytes(File file, ByteBuffer buffer) throws IOException {
         final File dir = file.getParentFile();
         if (!dir.exists() && !dir.mkdirs()) {
             throw new IOException("cannot make directory " + dir);
         }
 
-        final BufferedWriter out = new BufferedWriter(new FileWriter(file));
+        final File temp = File.createTempFile("sntp", ".tmp", dir);
         try {
-            out.write(string);
-            out.write('\n'); // some pretty printing
-            out.flush();
+            final FileOutputStream out = new FileOutputStream(temp);
+            try {
+                final FileChannel channel = out.getChannel();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } finally {
+                out.close();
+            }
+            // rename replaces file atomically on POSIX, elsewhere it may refuse to replace existing file
+            if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+                throw new IOException("cannot rename " + temp + " to " + file);
+            }
         } finally {
-            out.close();
+            if (temp.exists()) {
+                temp.delete();
+            }
         }
     }
 }
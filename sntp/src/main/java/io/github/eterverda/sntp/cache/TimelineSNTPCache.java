@@ -0,0 +1,52 @@
+package io.github.eterverda.sntp.cache;
+
+import java.util.List;
+
+import io.github.eterverda.sntp.SNTPResponse;
+
+/**
+ * Records every response in {@link SNTPTimeline} and replays the latest of them to delegate on start, so clock
+ * filter and drift correction do not have to collect responses over network again after restart.
+ */
+final class TimelineSNTPCache implements SNTPCache {
+    static final int WARM_START_SIZE = Math.max(FilteringSNTPCache.SIZE, DriftingSNTPCache.SIZE);
+
+    private final SNTPCache delegate;
+    private final SNTPTimeline timeline;
+
+    public TimelineSNTPCache(SNTPCache delegate, SNTPTimeline timeline) {
+        this.delegate = delegate;
+        this.timeline = timeline;
+
+        warmStart();
+    }
+
+    private void warmStart() {
+        final List<SNTPResponse> responses = timeline.tail(WARM_START_SIZE);
+        if (responses.isEmpty()) {
+            return;
+        }
+        // e.g. shared cache may have newer response of other process, it must stay on top
+        final SNTPResponse current = delegate.get();
+        for (SNTPResponse response : responses) {
+            delegate.put(response);
+        }
+        final SNTPResponse last = responses.get(responses.size() - 1);
+        if (current != null && current.getResponseTimeNanos() > last.getResponseTimeNanos()) {
+            delegate.put(current);
+        }
+    }
+
+    @Override
+    public SNTPResponse get() {
+        return delegate.get();
+    }
+
+    @Override
+    public void put(SNTPResponse response) {
+        if (response != null) {
+            timeline.append(response);
+        }
+        delegate.put(response);
+    }
+}
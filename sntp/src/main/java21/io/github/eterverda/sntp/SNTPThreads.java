@@ -0,0 +1,20 @@
+package io.github.eterverda.sntp;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Java 21 version of threads for blocking requests. Every request gets its own virtual thread so that many
+ * concurrent requests to many hosts do not hold platform threads while waiting for replies.
+ */
+final class SNTPThreads {
+    private SNTPThreads() {
+    }
+
+    /**
+     * @return executor of virtual threads, they never keep JVM alive
+     */
+    static ExecutorService newExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+}
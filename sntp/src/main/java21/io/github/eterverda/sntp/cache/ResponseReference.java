@@ -0,0 +1,36 @@
+package io.github.eterverda.sntp.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import io.github.eterverda.sntp.SNTPResponse;
+
+/**
+ * Java 21 version of response publication. Release store is enough for immutable response and, unlike volatile
+ * store, it does not need full fence after it.
+ */
+final class ResponseReference {
+    private static final VarHandle RESPONSE;
+
+    static {
+        try {
+            RESPONSE = MethodHandles.lookup().findVarHandle(ResponseReference.class, "response", SNTPResponse.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private SNTPResponse response;
+
+    ResponseReference(SNTPResponse response) {
+        this.response = response;
+    }
+
+    SNTPResponse get() {
+        return (SNTPResponse) RESPONSE.getAcquire(this);
+    }
+
+    void set(SNTPResponse response) {
+        RESPONSE.setRelease(this, response);
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.eterverda.sntp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+public class CachingSNTPResolverTest {
+    private static final long TTL = 1000;
+
+    private final FakeResolver resolver = new FakeResolver();
+    private final FakeClock clock = new FakeClock();
+
+    @Test
+    public void testRotation() throws IOException {
+        resolver.addresses = addresses(1, 2, 3);
+        final CachingSNTPResolver caching = new CachingSNTPResolver(resolver, TTL, clock);
+
+        Assert.assertEquals(address(1), caching.nextAddress("pool"));
+        Assert.assertEquals(address(2), caching.nextAddress("pool"));
+        Assert.assertEquals(address(3), caching.nextAddress("pool"));
+        Assert.assertEquals(address(1), caching.nextAddress("pool"));
+        Assert.assertEquals(1, resolver.calls);
+    }
+
+    @Test
+    public void testExpiration() throws IOException {
+        resolver.addresses = addresses(1);
+        final CachingSNTPResolver caching = new CachingSNTPResolver(resolver, TTL, clock);
+
+        caching.nextAddress("pool");
+        clock.ticks += TTL - 1;
+        caching.nextAddress("pool");
+        Assert.assertEquals(1, resolver.calls);
+
+        resolver.addresses = addresses(2);
+        clock.ticks += 1;
+        Assert.assertEquals(address(2), caching.nextAddress("pool"));
+        Assert.assertEquals(2, resolver.calls);
+    }
+
+    @Test
+    public void testZeroTtl() throws IOException {
+        resolver.addresses = addresses(1, 2);
+        final CachingSNTPResolver caching = new CachingSNTPResolver(resolver, 0, clock);
+
+        Assert.assertEquals(address(1), caching.nextAddress("pool"));
+        Assert.assertEquals(address(2), caching.nextAddress("pool"));
+        Assert.assertEquals(2, resolver.calls);
+    }
+
+    @Test
+    public void testStaleOnFailure() throws IOException {
+        resolver.addresses = addresses(1);
+        final CachingSNTPResolver caching = new CachingSNTPResolver(resolver, TTL, clock);
+        caching.nextAddress("pool");
+
+        resolver.addresses = null;
+        clock.ticks += TTL;
+        Assert.assertEquals(address(1), caching.nextAddress("pool"));
+        Assert.assertEquals(address(1), caching.nextAddress("pool"));
+        Assert.assertEquals(2, resolver.calls);
+
+        try {
+            caching.nextAddress("other");
+            Assert.fail();
+        } catch (UnknownHostException expected) {
+        }
+    }
+
+    @Test
+    public void testClientResolvesOnce() throws IOException {
+        final int port;
+        try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort(); // nobody listens there once socket is closed
+        }
+        resolver.addresses = new InetAddress[]{InetAddress.getLoopbackAddress()};
+        final SNTPClient client = SNTPClientBuilder.custom()
+                .setHosts(new SNTPHosts("ntp.test"))
+                .setResolver(resolver)
+                .setPort(port)
+                .setSoTimeout(50)
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                client.execute();
+                Assert.fail();
+            } catch (IOException expected) {
+                Assert.assertFalse(expected instanceof UnknownHostException);
+            }
+        }
+        Assert.assertEquals(1, resolver.calls);
+    }
+
+    private static InetAddress[] addresses(int... last) throws UnknownHostException {
+        final InetAddress[] addresses = new InetAddress[last.length];
+        for (int i = 0; i < last.length; i++) {
+            addresses[i] = address(last[i]);
+        }
+        return addresses;
+    }
+
+    private static InetAddress address(int last) throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) last});
+    }
+
+    private static final class FakeResolver implements SNTPResolver {
+        InetAddress[] addresses;
+        int calls;
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            calls++;
+            if (addresses == null) {
+                throw new UnknownHostException(host);
+            }
+            return addresses;
+        }
+    }
+
+    private static final class FakeClock implements SNTPClient.MonotonicClock {
+        long ticks = 1_000_000;
+
+        @Override
+        public long ticks() {
+            return ticks;
+        }
+    }
+}
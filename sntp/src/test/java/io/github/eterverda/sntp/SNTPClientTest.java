@@ -0,0 +1,354 @@
+package io.github.eterverda.sntp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SNTPClientTest {
+    private StandInServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StandInServer();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testExecute() throws IOException {
+        final SNTPResponse response = client().build().execute();
+
+        Assert.assertEquals(0, response.getClockOffset(), 50);
+        Assert.assertEquals(1, server.requests.get());
+    }
+
+    @Test
+    public void testExecuteAsync() throws Exception {
+        final SNTPResponse response = client().build().executeAsync().get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(0, response.getClockOffset(), 50);
+        Assert.assertEquals(1, server.requests.get());
+    }
+
+    @Test
+    public void testExecuteAsyncFailure() throws Exception {
+        server.drop.set(1);
+        try {
+            client().setSoTimeout(100).build().executeAsync().get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof SocketTimeoutException);
+        }
+    }
+
+    @Test
+    public void testExecuteAsyncCallback() throws InterruptedException {
+        final AtomicInteger executed = new AtomicInteger();
+        final AtomicReference<Object> result = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final SNTPClient client = client()
+                .setResolver(new SNTPResolver() {
+                    @Override
+                    public InetAddress[] resolve(String host) throws UnknownHostException {
+                        throw new UnknownHostException(host);
+                    }
+                })
+                .setExecutor(new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        executed.incrementAndGet();
+                        new Thread(command).start();
+                    }
+                })
+                .build();
+
+        client.executeAsync(new SNTPCallback() {
+            @Override
+            public void onResponse(SNTPResponse response) {
+                result.set(response);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(IOException exception) {
+                result.set(exception);
+                done.countDown();
+            }
+        });
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, executed.get());
+        Assert.assertTrue(result.get() instanceof UnknownHostException);
+    }
+
+    @Test
+    public void testPort() throws IOException {
+        final int otherPort;
+        try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            otherPort = socket.getLocalPort();
+        }
+        try {
+            client().setPort(otherPort).setSoTimeout(200).build().execute();
+            Assert.fail();
+        } catch (IOException expected) {
+        }
+        Assert.assertEquals(0, server.requests.get());
+
+        client().setPort(server.getPort()).build().execute();
+        Assert.assertEquals(1, server.requests.get());
+    }
+
+    @Test
+    public void testPortOutOfRange() {
+        for (int port : new int[]{-1, 0, 0x10000}) {
+            try {
+                SNTPClientBuilder.custom().setPort(port);
+                Assert.fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        SNTPClientBuilder.custom().setPort(1).setPort(0xffff);
+    }
+
+    @Test
+    public void testHedge() throws IOException {
+        server.drop.set(1);
+        final SNTPClient client = client().setHedgeDelay(50).build();
+
+        final long start = System.currentTimeMillis();
+        final SNTPResponse response = client.execute();
+
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+        Assert.assertEquals(0, response.getClockOffset(), 50);
+        Assert.assertEquals(2, server.requests.get());
+    }
+
+    @Test
+    public void testHedgeBudget() throws IOException {
+        server.drop.set(Integer.MAX_VALUE);
+        final SNTPClient client = client().setSoTimeout(100).setHedgeDelay(10).setHedgeBudget(0).build();
+
+        for (int i = 0; i < SNTPHedgeBudget.MAX_TOKENS + 5; i++) {
+            try {
+                client.execute();
+                Assert.fail();
+            } catch (SocketTimeoutException expected) {
+            }
+        }
+        Assert.assertEquals(2 * SNTPHedgeBudget.MAX_TOKENS + 5, server.requests.get());
+    }
+
+    @Test
+    public void testAutoHedgeNeedsRoundTrips() throws IOException {
+        server.drop.set(1);
+        final SNTPClient client = client().setSoTimeout(200).setHedgeDelay(SNTPClient.HEDGE_AUTO).build();
+
+        try {
+            client.execute();
+            Assert.fail();
+        } catch (SocketTimeoutException expected) {
+        }
+        Assert.assertEquals(1, server.requests.get());
+    }
+
+    @Test
+    public void testBudgetRetries() throws IOException {
+        server.drop.set(2);
+        final SNTPClient client = client().setSoTimeout(100).build();
+
+        final SNTPResponse response = client.execute(2000);
+
+        Assert.assertEquals(0, response.getClockOffset(), 50);
+        Assert.assertEquals(3, server.requests.get());
+    }
+
+    @Test
+    public void testBudgetIsHardBound() throws IOException {
+        server.drop.set(Integer.MAX_VALUE);
+        final SNTPClient client = client().build();
+
+        final long start = System.currentTimeMillis();
+        try {
+            client.execute(1200);
+            Assert.fail();
+        } catch (SocketTimeoutException expected) {
+        }
+        final long elapsed = System.currentTimeMillis() - start;
+
+        Assert.assertTrue(elapsed >= 1200 && elapsed < 1700);
+        // 600, 300 and last 300 ms instead of one attempt with 2000 ms socket timeout
+        Assert.assertEquals(3, server.requests.get());
+    }
+
+    @Test(expected = UnknownHostException.class)
+    public void testBudgetUnknownHost() throws IOException {
+        SNTPClientBuilder.custom()
+                .setHosts(new SNTPHosts("a.test", "b.test"))
+                .setResolver(new SNTPResolver() {
+                    @Override
+                    public InetAddress[] resolve(String host) throws UnknownHostException {
+                        throw new UnknownHostException(host);
+                    }
+                })
+                .build()
+                .execute(60_000);
+    }
+
+    @Test
+    public void testKissOfDeath() throws IOException {
+        server.close();
+        server = new StandInServer() {
+            @Override
+            void reply(byte[] buffer) {
+                super.reply(buffer);
+                buffer[1] = 0;
+                System.arraycopy(SNTPKissOfDeathException.RATE.getBytes(), 0, buffer, 12, 4);
+            }
+        };
+        final SNTPMetrics metrics = new SNTPMetrics();
+        final SNTPClient client = client().setListener(metrics).build();
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                client.execute();
+                Assert.fail();
+            } catch (SNTPKissOfDeathException expected) {
+                Assert.assertEquals(SNTPKissOfDeathException.RATE, expected.getCode());
+            }
+        }
+        Assert.assertEquals(1, server.requests.get());
+        Assert.assertEquals(1, metrics.getSnapshot().getHosts().get("ntp.test").getKissesOfDeath());
+    }
+
+    @Test
+    public void testPollInterval() throws IOException {
+        server.close();
+        server = new StandInServer() {
+            @Override
+            void reply(byte[] buffer) {
+                super.reply(buffer);
+                buffer[2] = 10;
+            }
+        };
+        final SNTPHosts hosts = new SNTPHosts("a.test", "b.test");
+        hosts.reportResponse("b.test", 500);
+
+        client().setHosts(hosts).build().execute();
+
+        // a.test is faster but asked to be polled in 1024 seconds
+        Assert.assertEquals("b.test", hosts.nextHost());
+    }
+
+    @Test
+    public void testEchoedPollInterval() throws IOException {
+        final SNTPHosts hosts = new SNTPHosts("a.test", "b.test");
+        hosts.reportResponse("b.test", 500);
+
+        client().setHosts(hosts).build().execute();
+
+        // reply echoes poll of request, which does not ask to slow down
+        Assert.assertEquals("a.test", hosts.nextHost());
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testUnsynchronized() throws IOException {
+        server.close();
+        server = new StandInServer() {
+            @Override
+            void reply(byte[] buffer) {
+                super.reply(buffer);
+                buffer[0] |= 0xc0; // alarm
+            }
+        };
+        client().build().execute();
+    }
+
+    @Test
+    public void testParallelKissOfDeath() throws IOException {
+        server.close();
+        server = new StandInServer() {
+            @Override
+            void reply(byte[] buffer) {
+                super.reply(buffer);
+                buffer[1] = 0;
+                System.arraycopy(SNTPKissOfDeathException.DENY.getBytes(), 0, buffer, 12, 4);
+            }
+        };
+        final SNTPClient client = client().setHosts(new SNTPHosts("a.test", "b.test")).setParallelism(2).build();
+
+        final long start = System.currentTimeMillis();
+        try {
+            client.execute();
+            Assert.fail();
+        } catch (SNTPKissOfDeathException expected) {
+            Assert.assertEquals(SNTPKissOfDeathException.DENY, expected.getCode());
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void testParallelLowestRoundTripWins() throws IOException {
+        server.close();
+        server = new StandInServer() {
+            @Override
+            void reply(byte[] buffer) {
+                if (requests.get() == 1) {
+                    sleep(150); // the first request comes back first but with long round trip
+                }
+                super.reply(buffer);
+            }
+        };
+        final AtomicInteger resolved = new AtomicInteger();
+        final SNTPClient client = client()
+                .setHosts(new SNTPHosts("a.test", "b.test"))
+                .setResolver(new SNTPResolver() {
+                    @Override
+                    public InetAddress[] resolve(String host) {
+                        if (resolved.incrementAndGet() == 2) {
+                            sleep(100); // the second request is sent later
+                        }
+                        return new InetAddress[]{InetAddress.getLoopbackAddress()};
+                    }
+                })
+                .setParallelism(2)
+                .build();
+
+        final SNTPResponse response = client.execute();
+
+        Assert.assertEquals(2, server.requests.get());
+        Assert.assertTrue(response.getRoundTripDelay() < 100);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private SNTPClientBuilder client() {
+        return SNTPClientBuilder.custom()
+                .setHosts(new SNTPHosts("ntp.test"))
+                .setResolver(StandInServer.loopback())
+                .setPort(server.getPort())
+                .setSoTimeout(2000);
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.eterverda.sntp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SNTPEngineTest {
+    private StandInServer server;
+    private SNTPEngine engine;
+    private Thread.UncaughtExceptionHandler handler;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StandInServer();
+        engine = SNTPClientBuilder.custom()
+                .setPort(server.getPort())
+                .setSoTimeout(2000)
+                .buildEngine();
+        handler = Thread.getDefaultUncaughtExceptionHandler();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Thread.setDefaultUncaughtExceptionHandler(handler);
+        engine.close();
+        server.close();
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+        final SNTPResponse response = engine.submit(InetAddress.getLoopbackAddress()).get(2, TimeUnit.SECONDS);
+
+        Assert.assertEquals(0, response.getClockOffset(), 50);
+    }
+
+    @Test
+    public void testThrowingCallback() throws Exception {
+        final AtomicInteger uncaught = new AtomicInteger();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                uncaught.incrementAndGet();
+            }
+        });
+        final CountDownLatch called = new CountDownLatch(1);
+        engine.submit(InetAddress.getLoopbackAddress(), new SNTPCallback() {
+            @Override
+            public void onResponse(SNTPResponse response) {
+                called.countDown();
+                throw new IllegalStateException();
+            }
+
+            @Override
+            public void onFailure(IOException exception) {
+                called.countDown();
+                throw new IllegalStateException();
+            }
+        });
+        Assert.assertTrue(called.await(2, TimeUnit.SECONDS));
+
+        // I/O thread survives and serves next request
+        Assert.assertNotNull(engine.submit(InetAddress.getLoopbackAddress()).get(2, TimeUnit.SECONDS));
+        Assert.assertEquals(1, uncaught.get());
+    }
+
+    @Test
+    public void testSubmitAfterClose() throws Exception {
+        engine.close();
+        final Future<SNTPResponse> future = engine.submit(InetAddress.getLoopbackAddress());
+
+        try {
+            future.get(2, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof IOException);
+        }
+    }
+}
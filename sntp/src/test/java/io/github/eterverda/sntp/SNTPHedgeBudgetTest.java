@@ -0,0 +1,34 @@
+package io.github.eterverda.sntp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SNTPHedgeBudgetTest {
+    @Test
+    public void testBurst() {
+        final SNTPHedgeBudget budget = new SNTPHedgeBudget(0);
+        for (int i = 0; i < SNTPHedgeBudget.MAX_TOKENS; i++) {
+            budget.onRequest();
+            Assert.assertTrue(budget.tryAcquire());
+        }
+        budget.onRequest();
+        Assert.assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    public void testShare() {
+        final SNTPHedgeBudget budget = new SNTPHedgeBudget(0.25);
+        for (int i = 0; i < SNTPHedgeBudget.MAX_TOKENS; i++) {
+            Assert.assertTrue(budget.tryAcquire());
+        }
+
+        int hedges = 0;
+        for (int i = 0; i < 1000; i++) {
+            budget.onRequest();
+            if (budget.tryAcquire()) {
+                hedges++;
+            }
+        }
+        Assert.assertEquals(250, hedges);
+    }
+}
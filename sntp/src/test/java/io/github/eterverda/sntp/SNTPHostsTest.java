@@ -0,0 +1,209 @@
+package io.github.eterverda.sntp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class SNTPHostsTest {
+    private static final long NOW = 1_000_000;
+
+    @Test
+    public void testPrefersFastHost() {
+        final SNTPHosts hosts = new SNTPHosts("fast", "slow");
+        for (int i = 0; i < 5; i++) {
+            hosts.reportResponse("fast", 10);
+            hosts.reportResponse("slow", 200);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("fast", hosts.nextHost());
+        }
+    }
+
+    @Test
+    public void testUnknownHostIsTriedFirst() {
+        final SNTPHosts hosts = new SNTPHosts("known", "unknown");
+        hosts.reportResponse("known", 10);
+
+        Assert.assertEquals("unknown", hosts.nextHost());
+    }
+
+    @Test
+    public void testFailedUnknownHostIsNotPreferred() {
+        final SNTPHosts hosts = new SNTPHosts("dead", "alive");
+        hosts.reportResponse("alive", 10);
+
+        // the first failure does not eject yet but host with only failures must not beat one that answers
+        hosts.reportFailure("dead", NOW);
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(1, hosts.nextIndex(NOW, null));
+        }
+    }
+
+    @Test
+    public void testEjection() {
+        final SNTPHosts hosts = new SNTPHosts("dead", "alive");
+        hosts.reportResponse("alive", 500);
+        hosts.reportResponse("dead", 10);
+
+        for (int i = 0; i < SNTPHosts.EJECT_AFTER_FAILURES; i++) {
+            hosts.reportFailure("dead", NOW);
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(1, hosts.nextIndex(NOW + SNTPHosts.MIN_EJECTION - 1, null));
+        }
+
+        // ejection is over but next failure ejects host for twice as long
+        hosts.reportFailure("dead", NOW + SNTPHosts.MIN_EJECTION);
+        Assert.assertEquals(1, hosts.nextIndex(NOW + 3 * SNTPHosts.MIN_EJECTION - 1, null));
+        Assert.assertEquals(0, hosts.nextIndex(NOW + 3 * SNTPHosts.MIN_EJECTION, null));
+    }
+
+    @Test
+    public void testAllEjected() {
+        final SNTPHosts hosts = new SNTPHosts("a", "b");
+        for (int i = 0; i < SNTPHosts.EJECT_AFTER_FAILURES; i++) {
+            hosts.reportFailure("a", NOW + 1);
+            hosts.reportFailure("b", NOW);
+        }
+
+        Assert.assertEquals(1, hosts.nextIndex(NOW, null));
+    }
+
+    @Test
+    public void testTimeout() {
+        final SNTPHosts hosts = new SNTPHosts("host");
+        Assert.assertEquals(4000, hosts.getTimeout("host", 4000));
+
+        for (int i = 0; i < 10; i++) {
+            hosts.reportResponse("host", 100 + i);
+        }
+
+        Assert.assertEquals(3 * 109, hosts.getTimeout("host", 4000));
+        Assert.assertEquals(200, hosts.getTimeout("host", 200));
+        Assert.assertEquals(0, hosts.getTimeout("host", 0));
+    }
+
+    @Test
+    public void testMinTimeout() {
+        final SNTPHosts hosts = new SNTPHosts("host");
+        for (int i = 0; i < 10; i++) {
+            hosts.reportResponse("host", 1);
+        }
+
+        Assert.assertEquals(SNTPHosts.MIN_TIMEOUT, hosts.getTimeout("host", 4000));
+    }
+
+    @Test
+    public void testRateEmbargo() {
+        final SNTPHosts hosts = new SNTPHosts("rate", "slow");
+        hosts.reportResponse("rate", 10);
+        hosts.reportResponse("slow", 500);
+
+        hosts.reportKissOfDeath("rate", SNTPKissOfDeathException.RATE, 1000, NOW);
+        Assert.assertEquals(1, hosts.nextIndex(NOW + SNTPHosts.MIN_RATE_EMBARGO - 1, null));
+        Assert.assertEquals(0, hosts.nextIndex(NOW + SNTPHosts.MIN_RATE_EMBARGO, null));
+
+        // next one in a row is twice as long
+        hosts.reportKissOfDeath("rate", SNTPKissOfDeathException.RATE, 1000, NOW);
+        Assert.assertEquals(1, hosts.nextIndex(NOW + 2 * SNTPHosts.MIN_RATE_EMBARGO - 1, null));
+    }
+
+    @Test
+    public void testDenyEmbargo() {
+        final SNTPHosts hosts = new SNTPHosts("deny", "dead");
+        hosts.reportKissOfDeath("deny", SNTPKissOfDeathException.DENY, 1000);
+        hosts.reportFailure("dead");
+        hosts.reportFailure("dead");
+
+        // ejected host is still better than one that denied access
+        Assert.assertEquals("dead", hosts.nextHost());
+        Assert.assertEquals(SNTPKissOfDeathException.DENY, hosts.getEmbargo("deny"));
+        Assert.assertNull(hosts.getEmbargo("dead"));
+    }
+
+    @Test
+    public void testPollInterval() {
+        final SNTPHosts hosts = new SNTPHosts("fast", "slow");
+        hosts.reportResponse("fast", 10);
+        hosts.reportResponse("slow", 500);
+        hosts.reportPollInterval("fast", 60_000);
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("slow", hosts.nextHost());
+        }
+        hosts.reportPollInterval("slow", 60_000);
+        Assert.assertNotNull(hosts.nextHost());
+    }
+
+    @Test
+    public void testShorterPollIntervalDoesNotBringHostBack() {
+        final SNTPHosts hosts = new SNTPHosts("fast", "slow");
+        hosts.reportResponse("fast", 10);
+        hosts.reportResponse("slow", 500);
+
+        hosts.reportPollInterval("fast", 60_000, NOW);
+        hosts.reportPollInterval("fast", 1000, NOW + 1);
+
+        Assert.assertEquals(1, hosts.nextIndex(NOW + 60_000 - 1, null));
+        Assert.assertEquals(0, hosts.nextIndex(NOW + 60_000, null));
+    }
+
+    @Test
+    public void testRoundTripPercentile() {
+        final SNTPHosts hosts = new SNTPHosts("host");
+        Assert.assertEquals(-1, hosts.getRoundTripPercentile("host", 90));
+
+        for (int i = 1; i <= 10; i++) {
+            hosts.reportResponse("host", i * 10);
+        }
+
+        Assert.assertEquals(90, hosts.getRoundTripPercentile("host", 90));
+        Assert.assertEquals(10, hosts.getRoundTripPercentile("host", 0));
+        Assert.assertEquals(-1, hosts.getRoundTripPercentile("other", 90));
+    }
+
+    @Test
+    public void testRoundTripPercentileOfRecentResponses() {
+        final SNTPHosts hosts = new SNTPHosts("host");
+        for (int i = 1; i <= 10; i++) {
+            hosts.reportResponse("host", 1000 - i);
+        }
+        for (int i = 1; i <= 16; i++) {
+            hosts.reportResponse("host", i * 10);
+        }
+
+        Assert.assertEquals(10, hosts.getRoundTripPercentile("host", 0));
+        Assert.assertEquals(80, hosts.getRoundTripPercentile("host", 50));
+        Assert.assertEquals(160, hosts.getRoundTripPercentile("host", 100));
+    }
+
+    @Test
+    public void testNegativeClock() {
+        final SNTPHosts hosts = new SNTPHosts("slow", "fast");
+        hosts.reportResponse("slow", 500);
+        hosts.reportResponse("fast", 10);
+
+        // System.nanoTime() may be negative, hosts that were never penalized are still available
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(1, hosts.nextIndex(-NOW, null));
+        }
+
+        for (int i = 0; i < SNTPHosts.EJECT_AFTER_FAILURES; i++) {
+            hosts.reportFailure("fast", -NOW);
+        }
+        Assert.assertEquals(0, hosts.nextIndex(-NOW + SNTPHosts.MIN_EJECTION - 1, null));
+        Assert.assertEquals(1, hosts.nextIndex(-NOW + SNTPHosts.MIN_EJECTION, null));
+    }
+
+    @Test
+    public void testNextHostsAreDistinct() {
+        final SNTPHosts hosts = new SNTPHosts("a", "b", "c", "d");
+
+        Assert.assertEquals(3, new HashSet<>(Arrays.asList(hosts.nextHosts(3))).size());
+        Assert.assertEquals(4, hosts.nextHosts(10).length);
+    }
+}
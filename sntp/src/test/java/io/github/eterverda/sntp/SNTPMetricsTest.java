@@ -0,0 +1,101 @@
+package io.github.eterverda.sntp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+
+import io.github.eterverda.sntp.cache.SNTPCache;
+import io.github.eterverda.sntp.cache.SNTPCacheBuilder;
+
+public class SNTPMetricsTest {
+    @Test
+    public void testCacheHitsAndMisses() {
+        final SNTPMetrics metrics = new SNTPMetrics();
+        final SNTPCache cache = SNTPCacheBuilder.custom().setListener(metrics).build();
+
+        Assert.assertNull(cache.get());
+        cache.put(SNTPResponse.create(System.currentTimeMillis(), System.currentTimeMillis() + 1000));
+        Assert.assertNotNull(cache.get());
+        Assert.assertNotNull(cache.get());
+
+        final SNTPMetrics.Snapshot snapshot = metrics.getSnapshot();
+        Assert.assertEquals(2, snapshot.getCacheHits());
+        Assert.assertEquals(1, snapshot.getCacheMisses());
+        Assert.assertEquals(0, snapshot.getCacheErrors());
+    }
+
+    @Test
+    public void testCacheExpiration() {
+        final SNTPMetrics metrics = new SNTPMetrics();
+        final SNTPCache cache = SNTPCacheBuilder.custom().setListener(metrics).setExpirationInterval(1000).build();
+
+        final long now = System.currentTimeMillis();
+        cache.put(SNTPResponse.unflatten(now - 2000, 1000, SNTPResponse.UNKNOWN, SNTPResponse.UNKNOWN, 0));
+        Assert.assertNull(cache.get());
+        Assert.assertNull(cache.get());
+
+        Assert.assertEquals(1, metrics.getSnapshot().getCacheExpirations());
+        Assert.assertEquals(2, metrics.getSnapshot().getCacheMisses());
+    }
+
+    @Test
+    public void testCacheError() throws IOException {
+        final File file = File.createTempFile("sntp", null);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("malformed");
+        }
+        final SNTPMetrics metrics = new SNTPMetrics();
+        final SNTPCache cache = SNTPCacheBuilder.custom().setListener(metrics).setFile(file).build();
+
+        Assert.assertNull(cache.get());
+
+        Assert.assertEquals(1, metrics.getSnapshot().getCacheErrors());
+        Assert.assertFalse(file.exists());
+    }
+
+    @Test
+    public void testRequestFailure() throws IOException {
+        final int port;
+        try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort(); // nobody listens there once socket is closed
+        }
+        final String host = InetAddress.getLoopbackAddress().getHostAddress();
+        final SNTPMetrics metrics = new SNTPMetrics();
+        final SNTPClient client = SNTPClientBuilder.custom()
+                .setHosts(new SNTPHosts(host))
+                .setPort(port)
+                .setSoTimeout(100)
+                .setListener(metrics)
+                .build();
+
+        try {
+            client.execute();
+            Assert.fail();
+        } catch (IOException expected) {
+        }
+
+        final SNTPMetrics.HostSnapshot snapshot = metrics.getSnapshot().getHosts().get(host);
+        Assert.assertEquals(1, snapshot.getRequests());
+        Assert.assertEquals(0, snapshot.getResponses());
+        Assert.assertEquals(1, snapshot.getTimeouts() + snapshot.getFailures());
+    }
+
+    @Test
+    public void testRoundTripPercentile() {
+        final SNTPMetrics metrics = new SNTPMetrics();
+        for (int i = 1; i <= 100; i++) {
+            metrics.onRequestStart("host");
+            metrics.onRequestEnd("host", SNTPResponse.unflatten(0, 0, i, 0, 0));
+        }
+
+        final SNTPMetrics.HostSnapshot snapshot = metrics.getSnapshot().getHosts().get("host");
+        Assert.assertEquals(100, snapshot.getResponses());
+        Assert.assertEquals(63, snapshot.getRoundTripPercentile(50));
+        Assert.assertEquals(127, snapshot.getRoundTripPercentile(99));
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.eterverda.sntp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class SNTPPacketTest {
+    @Test
+    public void testTimestampNanos() {
+        final byte[] buffer = new byte[SNTPPacket.SIZE];
+        for (long time : new long[]{1447232173884000250L, 1447232173999999999L, -1L, 0L}) {
+            SNTPPacket.writeTimestampNanos(time, ByteBuffer.wrap(buffer), SNTPPacket.TRANSMIT_TIME_OFFSET);
+
+            Assert.assertEquals(time, SNTPPacket.readTimestampNanos(buffer, SNTPPacket.TRANSMIT_TIME_OFFSET), 1);
+            Assert.assertEquals(Math.floor(time / 1e6), SNTPPacket.readTimestamp(buffer, SNTPPacket.TRANSMIT_TIME_OFFSET), 1);
+        }
+    }
+
+    @Test
+    public void testDurationNanos() {
+        final byte[] buffer = new byte[SNTPPacket.SIZE];
+        // one unit of short format is about 15 microseconds
+        for (long nanos : new long[]{0L, 15259L, 12345678L, 1000000000L, 65535L * 1000000000L}) {
+            SNTPPacket.writeDurationNanos(nanos, ByteBuffer.wrap(buffer), SNTPPacket.ROOT_DELAY_OFFSET);
+
+            Assert.assertEquals(nanos, SNTPPacket.readDurationNanos(buffer, SNTPPacket.ROOT_DELAY_OFFSET), 15259);
+        }
+
+        SNTPPacket.writeDurationNanos(Long.MAX_VALUE, ByteBuffer.wrap(buffer), SNTPPacket.ROOT_DELAY_OFFSET);
+        Assert.assertEquals(65535L * 1000000000L, SNTPPacket.readDurationNanos(buffer, SNTPPacket.ROOT_DELAY_OFFSET), 15259);
+    }
+}
@@ -0,0 +1,191 @@
+package io.github.eterverda.sntp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.text.ParseException;
+
+public class SNTPResponseTest {
+    private static final String WELL_FORMED_RESPONSE_STRING = "sys 2015-11-11T08:56:13.884Z ntp 2015-11-11T08:56:14.885Z off 1001";
+    private static final String FULL_RESPONSE_STRING = "sys 2016-02-29T23:59:59.999Z ntp 2016-02-29T23:59:59.000Z off -999 del 12 dis 3 ppb -20000";
+
+    @Test
+    public void testRoundTrip() throws ParseException {
+        Assert.assertEquals(WELL_FORMED_RESPONSE_STRING, SNTPResponse.unflattenFromString(WELL_FORMED_RESPONSE_STRING).flattenToString());
+        Assert.assertEquals(FULL_RESPONSE_STRING, SNTPResponse.unflattenFromString(FULL_RESPONSE_STRING).flattenToString());
+    }
+
+    @Test
+    public void testTimestamp() throws ParseException {
+        Assert.assertEquals("1970-01-01T00:00:00.000Z", SNTPResponse.flattenTimestampToString(0));
+        Assert.assertEquals("1969-12-31T23:59:59.999Z", SNTPResponse.flattenTimestampToString(-1));
+        Assert.assertEquals("1900-01-01T00:00:00.000Z", SNTPResponse.flattenTimestampToString(-2208988800000L));
+        Assert.assertEquals(1447232173884L, SNTPResponse.unflattenTimestampFromString("2015-11-11T08:56:13.884Z"));
+    }
+
+    @Test
+    public void testFlattenToBuffer() throws ParseException {
+        final SNTPResponse response = SNTPResponse.unflattenFromString(FULL_RESPONSE_STRING);
+        final char[] buffer = new char[3 + SNTPResponse.MAX_FLATTENED_LENGTH];
+
+        final int end = response.flattenTo(buffer, 3);
+
+        Assert.assertEquals(FULL_RESPONSE_STRING, new String(buffer, 3, end - 3));
+        Assert.assertEquals(FULL_RESPONSE_STRING, SNTPResponse.unflattenFrom(new StringBuilder().append(buffer, 0, end), 3, end).flattenToString());
+    }
+
+    @Test
+    public void testNanosRoundTrip() throws ParseException {
+        final String string = "sys 2015-11-11T08:56:13.884000250Z ntp 2015-11-11T08:56:14.885500250Z off 1001.5 del 0.25 dis 3.000001";
+        final SNTPResponse response = SNTPResponse.unflattenFromString(string);
+
+        Assert.assertEquals(string, response.flattenToString());
+        Assert.assertEquals(1001500000L, response.getClockOffsetNanos());
+        Assert.assertEquals(1001, response.getClockOffset());
+        Assert.assertEquals(250000L, response.getRoundTripDelayNanos());
+        Assert.assertEquals(0, response.getRoundTripDelay());
+        Assert.assertEquals(3000001L, response.getDispersionNanos());
+        Assert.assertEquals(1447232173884L, response.getResponseTimeMillis());
+        Assert.assertEquals(1447232174885L, response.globalTimeMillis(response.getResponseTimeMillis()));
+    }
+
+    @Test
+    public void testNegativeNanos() throws ParseException {
+        final SNTPResponse response = SNTPResponse.unflattenNanos(-1, -1500000L, SNTPResponse.UNKNOWN, SNTPResponse.UNKNOWN, 0);
+
+        Assert.assertEquals("sys 1969-12-31T23:59:59.999999999Z ntp 1969-12-31T23:59:59.998499999Z off -1.5", response.flattenToString());
+        Assert.assertEquals(-1, response.getResponseTimeMillis());
+        Assert.assertEquals(-1, response.getClockOffset());
+        Assert.assertEquals(-1500000L, SNTPResponse.unflattenFromString(response.flattenToString()).getClockOffsetNanos());
+    }
+
+    @Test
+    public void testCreateKeepsNanos() {
+        final long originate = 1447232173884L;
+        // server is 1.0005 ms ahead, round trip is 200 microseconds, server held request for 50 microseconds
+        final long receive = originate * 1000000L + 1000500L + 75000L;
+        final SNTPResponse response = SNTPResponse.create(originate, 200000L, receive, receive + 50000L, SNTPResponse.UNKNOWN,
+                SNTPClient.NANO_TIME_CLOCK, SNTPClient.NANO_TIME_CLOCK.ticks(), System.nanoTime());
+
+        Assert.assertEquals(1000500L, response.getClockOffsetNanos());
+        Assert.assertEquals(150000L, response.getRoundTripDelayNanos());
+        Assert.assertEquals(originate * 1000000L + 200000L, response.getResponseTimeNanos());
+    }
+
+    @Test
+    public void testCurrentGlobalTimeNanos() {
+        final SNTPResponse response = SNTPResponse.create(System.currentTimeMillis(), 0, 0, 0, SNTPResponse.UNKNOWN,
+                SNTPClient.NANO_TIME_CLOCK, SNTPClient.NANO_TIME_CLOCK.ticks(), System.nanoTime());
+
+        final long before = response.currentGlobalTimeNanos();
+        final long millis = response.currentGlobalTimeMillis();
+        final long after = response.currentGlobalTimeNanos();
+
+        Assert.assertTrue(before <= after);
+        Assert.assertTrue(Math.abs(millis - before / 1000000L) <= 1);
+    }
+
+    @Test
+    public void testBulkConversion() throws ParseException {
+        for (String string : new String[]{WELL_FORMED_RESPONSE_STRING, FULL_RESPONSE_STRING}) {
+            final SNTPResponse response = SNTPResponse.unflattenFromString(string);
+            final long start = response.getResponseTimeMillis() - 50000;
+            final long[] times = new long[1000];
+            for (int i = 0; i < times.length; i++) {
+                times[i] = start + i * 100L;
+            }
+            final long[] array = times.clone();
+            final LongBuffer heap = LongBuffer.wrap(times.clone());
+            final LongBuffer direct = ByteBuffer.allocateDirect(times.length * 8).asLongBuffer().put(times);
+            direct.position(10).limit(990);
+
+            response.globalTimeMillis(array, 10, 980);
+            response.globalTimeMillis(heap);
+            response.globalTimeMillis(direct);
+            Assert.assertEquals(10, direct.position());
+            direct.clear();
+
+            for (int i = 0; i < times.length; i++) {
+                final long expected = response.globalTimeMillis(times[i]);
+                Assert.assertEquals(i >= 10 && i < 990 ? expected : times[i], array[i]);
+                Assert.assertEquals(expected, heap.get(i));
+                Assert.assertEquals(i >= 10 && i < 990 ? expected : times[i], direct.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testBulkConversionNanos() throws ParseException {
+        final SNTPResponse response = SNTPResponse.unflattenFromString(FULL_RESPONSE_STRING);
+        final long[] times = {response.getResponseTimeNanos(), response.getResponseTimeNanos() + 1000000000L};
+        final long[] expected = {response.globalTimeNanos(times[0]), response.globalTimeNanos(times[1])};
+
+        response.globalTimeNanos(times, 0, times.length);
+
+        Assert.assertArrayEquals(expected, times);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBulkConversionOutOfBounds() throws ParseException {
+        SNTPResponse.unflattenFromString(FULL_RESPONSE_STRING).globalTimeMillis(new long[10], 5, 6);
+    }
+
+    @Test
+    public void testAgeAcrossWallClockChange() {
+        final FakeClock clock = new FakeClock();
+        // as if wall clock was set back by a day right after response
+        final long day = 24 * 60 * 60 * 1000L;
+        final long requestTime = System.currentTimeMillis() + day;
+        final long serverTime = (requestTime + 1000) * 1000000L;
+        final SNTPResponse response = SNTPResponse.create(requestTime, 10000000L, serverTime, serverTime, 0,
+                clock, clock.ticks(), clock.nanoTicks());
+
+        clock.advance(5000);
+
+        Assert.assertTrue(response.isMonotonic());
+        Assert.assertEquals(5000, response.getAgeMillis());
+        Assert.assertEquals(requestTime + 10 + 995 + 5000, response.currentGlobalTimeMillis());
+
+        final SNTPResponse rebased = response.rebase();
+        Assert.assertEquals(5000, rebased.getAgeMillis());
+        Assert.assertEquals(response.currentGlobalTimeMillis(), rebased.currentGlobalTimeMillis());
+        // response time is moved to current wall clock, 5 seconds ago
+        Assert.assertEquals(System.currentTimeMillis() - 5000, rebased.getResponseTimeMillis(), 100);
+
+        // restored copy has lost monotonic clock and sees wall clock change as its age
+        final SNTPResponse restored = SNTPResponse.unflattenNanos(response.getResponseTimeNanos(), response.getClockOffsetNanos(),
+                response.getRoundTripDelayNanos(), response.getDispersionNanos(), response.getDrift());
+        Assert.assertFalse(restored.isMonotonic());
+        Assert.assertEquals(-day, restored.getAgeMillis(), 100);
+    }
+
+    @Test(expected = ParseException.class)
+    public void testMalformedDate() throws ParseException {
+        SNTPResponse.unflattenFromString("sys 2015-02-29T08:56:13.884Z ntp 2015-02-29T08:56:14.885Z off 1001");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testTrailingChars() throws ParseException {
+        SNTPResponse.unflattenFromString(WELL_FORMED_RESPONSE_STRING + " del 12");
+    }
+
+    private static final class FakeClock implements SNTPClient.NanoMonotonicClock {
+        private long nanoTicks = 1000000000L;
+
+        void advance(long millis) {
+            nanoTicks += millis * 1000000L;
+        }
+
+        @Override
+        public long ticks() {
+            return nanoTicks / 1000000L;
+        }
+
+        @Override
+        public long nanoTicks() {
+            return nanoTicks;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.eterverda.sntp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eterverda.sntp.cache.SNTPCache;
+import io.github.eterverda.sntp.cache.SNTPCacheBuilder;
+
+public class SNTPTest {
+    private static final int THREADS = 8;
+
+    private long coalesced;
+    private StandInServer server;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        coalesced = SNTP.getCoalescedRequestCount();
+        server = new StandInServer() {
+            /**
+             * Holds reply until every other caller is waiting for request in flight.
+             */
+            @Override
+            void reply(byte[] buffer) {
+                final long deadline = System.currentTimeMillis() + 2000;
+                while (SNTP.getCoalescedRequestCount() - coalesced < THREADS - 1 && System.currentTimeMillis() < deadline) {
+                    Thread.yield();
+                }
+                super.reply(buffer);
+            }
+        };
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Test
+    public void testConcurrentCallersShareRequest() throws Exception {
+        final SNTPClient client = SNTPClientBuilder.custom()
+                .setHosts(new SNTPHosts("ntp.test"))
+                .setResolver(StandInServer.loopback())
+                .setPort(server.getPort())
+                .setSoTimeout(5000)
+                .build();
+        final SNTPCache cache = SNTPCacheBuilder.create();
+
+        final List<Future<SNTPResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(new Callable<SNTPResponse>() {
+                @Override
+                public SNTPResponse call() throws IOException {
+                    return SNTP.fetch(client, cache);
+                }
+            }));
+        }
+        final SNTPResponse response = futures.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<SNTPResponse> future : futures) {
+            Assert.assertSame(response, future.get(5, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(1, server.requests.get());
+        Assert.assertEquals(THREADS - 1, SNTP.getCoalescedRequestCount() - coalesced);
+        Assert.assertSame(response, cache.get());
+
+        // cache is checked again once caller owns the request slot
+        Assert.assertSame(response, SNTP.fetch(client, cache));
+        Assert.assertEquals(1, server.requests.get());
+    }
+}
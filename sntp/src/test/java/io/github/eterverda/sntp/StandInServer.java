@@ -0,0 +1,97 @@
+package io.github.eterverda.sntp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal SNTP server on loopback interface for client tests. Answers with local time, can drop requests.
+ */
+class StandInServer implements Closeable {
+    final AtomicInteger drop = new AtomicInteger();
+    final AtomicInteger requests = new AtomicInteger();
+
+    private final DatagramSocket socket;
+    private final Thread thread;
+
+    StandInServer() throws IOException {
+        socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serve();
+            }
+        }, "StandInServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    int getPort() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * @return resolver mapping any host to loopback address
+     */
+    static SNTPResolver loopback() {
+        return new SNTPResolver() {
+            @Override
+            public InetAddress[] resolve(String host) {
+                return new InetAddress[]{InetAddress.getLoopbackAddress()};
+            }
+        };
+    }
+
+    /**
+     * Called with reply packet before it is sent.
+     */
+    void reply(byte[] buffer) {
+        buffer[0] = (byte) ((buffer[0] & 0x38) | 4); // no leap second, same version, mode server
+        buffer[1] = 2; // stratum
+    }
+
+    private void serve() {
+        final byte[] buffer = new byte[SNTPPacket.SIZE];
+        final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (!socket.isClosed()) {
+            try {
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+                final long receiveTime = System.currentTimeMillis();
+                requests.incrementAndGet();
+                if (drop.get() > 0) {
+                    drop.decrementAndGet();
+                    continue;
+                }
+                System.arraycopy(buffer, SNTPPacket.TRANSMIT_TIME_OFFSET, buffer, SNTPPacket.ORIGINATE_TIME_OFFSET, 8);
+                writeTimestamp(receiveTime, buffer, SNTPPacket.RECEIVE_TIME_OFFSET);
+                writeTimestamp(System.currentTimeMillis(), buffer, SNTPPacket.TRANSMIT_TIME_OFFSET);
+                reply(buffer);
+                socket.send(packet);
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Unlike {@link SNTPClient#writeTimestamp(long, byte[], int)} does not randomize fraction.
+     */
+    private static void writeTimestamp(long time, byte[] buffer, int offset) {
+        SNTPPacket.writeUint32(time / 1000 + SNTPPacket.OFFSET_1900_TO_1970, buffer, offset);
+        SNTPPacket.writeUint32(time % 1000 * 0x100000000L / 1000, buffer, offset + 4);
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.eterverda.sntp.cache;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.ParseException;
+
+import io.github.eterverda.sntp.SNTPResponse;
+
+public class DriftingSNTPCacheTest {
+    private static final long START = 1447232173884L;
+    private static final long MINUTE = 60 * 1000;
+
+    private SNTPCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new DriftingSNTPCache(new MemorySNTPCache(null, null));
+    }
+
+    @Test
+    public void testSingleResponseHasNoDrift() throws ParseException {
+        cache.put(response(START, 1000));
+
+        Assert.assertEquals(0, cache.get().getDrift(), 0);
+    }
+
+    @Test
+    public void testLinearDrift() throws ParseException {
+        // 20 ppm: offset grows by 12 ms every 10 minutes
+        for (int i = 0; i < 6; i++) {
+            cache.put(response(START + i * 10 * MINUTE, 1000 + i * 12));
+        }
+        final SNTPResponse response = cache.get();
+
+        Assert.assertEquals(20e-6, response.getDrift(), 1e-7);
+        Assert.assertEquals(response.getResponseTimeMillis() + 1060 + 12, response.globalTimeMillis(response.getResponseTimeMillis() + 10 * MINUTE) - 10 * MINUTE);
+    }
+
+    @Test
+    public void testShortSpanHasNoDrift() throws ParseException {
+        cache.put(response(START, 1000));
+        cache.put(response(START + MINUTE / 2, 1100));
+
+        Assert.assertEquals(0, cache.get().getDrift(), 0);
+    }
+
+    @Test
+    public void testDriftIsBounded() throws ParseException {
+        cache.put(response(START, 1000));
+        cache.put(response(START + 10 * MINUTE, 61000));
+
+        Assert.assertEquals(DriftingSNTPCache.MAX_DRIFT, cache.get().getDrift(), 0);
+    }
+
+    @Test
+    public void testDriftIsPersisted() throws ParseException {
+        for (int i = 0; i < 3; i++) {
+            cache.put(response(START + i * 10 * MINUTE, 1000 - i * 6));
+        }
+        final SNTPResponse response = cache.get();
+        final SNTPResponse restored = SNTPResponse.unflattenFromString(response.flattenToString());
+
+        Assert.assertEquals(response.getDrift(), restored.getDrift(), 1e-9);
+        Assert.assertEquals(response.flattenToString(), restored.flattenToString());
+    }
+
+    @Test
+    public void testBuiltCache() throws ParseException {
+        cache = SNTPCacheBuilder.custom()
+                .setDriftCorrection(true)
+                .build();
+
+        // 100 ppm over last 50 minutes, well within default expiration interval
+        final long now = System.currentTimeMillis();
+        for (int i = 5; i >= 0; i--) {
+            cache.put(response(now - i * 10 * MINUTE, 1000 - i * 60));
+        }
+
+        Assert.assertEquals(100e-6, cache.get().getDrift(), 1e-7);
+    }
+
+    private static SNTPResponse response(long sys, long offset) throws ParseException {
+        final String sysStr = SNTPResponse.flattenTimestampToString(sys);
+        final String ntpStr = SNTPResponse.flattenTimestampToString(sys + offset);
+
+        return SNTPResponse.unflattenFromString("sys " + sysStr + " ntp " + ntpStr + " off " + offset);
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.eterverda.sntp.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import io.github.eterverda.sntp.SNTPResponse;
+
+public class ExpiringSNTPCacheTest {
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @Test
+    public void testFreshAndExpired() {
+        final long now = System.currentTimeMillis();
+        final SNTPCache cache = new ExpiringSNTPCache(new MemorySNTPCache(null, null), HOUR);
+
+        final SNTPResponse fresh = response(now);
+        cache.put(fresh);
+        Assert.assertSame(fresh, cache.get());
+
+        cache.put(response(now - 2 * HOUR));
+        Assert.assertNull(cache.get());
+    }
+
+    @Test
+    public void testSlowReadDoesNotBringBackClearedResponse() throws InterruptedException {
+        final long now = System.currentTimeMillis();
+        final BlockingSNTPCache delegate = new BlockingSNTPCache(response(now));
+        final SNTPCache cache = new ExpiringSNTPCache(delegate, HOUR);
+
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                cache.get();
+            }
+        });
+        reader.start();
+        delegate.entered.await();
+
+        final Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                cache.put(null);
+            }
+        });
+        writer.start();
+        writer.join(100); // put waits for reader, give it a chance to overtake if it could
+        delegate.release.countDown();
+        reader.join();
+        writer.join();
+
+        Assert.assertNull(cache.get());
+    }
+
+    private static SNTPResponse response(long sys) {
+        return SNTPResponse.unflatten(sys, 1000, 10, 0, 0);
+    }
+
+    /**
+     * Blocks the first read after it has loaded response until released.
+     */
+    private static final class BlockingSNTPCache implements SNTPCache {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        private volatile SNTPResponse response;
+
+        BlockingSNTPCache(SNTPResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public SNTPResponse get() {
+            final SNTPResponse response = this.response;
+            if (entered.getCount() > 0) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return response;
+        }
+
+        @Override
+        public void put(SNTPResponse response) {
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.eterverda.sntp.cache;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eterverda.sntp.SNTPClient;
+import io.github.eterverda.sntp.SNTPClientBuilder;
+import io.github.eterverda.sntp.SNTPResponse;
+
+public class FilteringSNTPCacheTest {
+    private static final long MAX_AGE = 60 * 1000;
+
+    private SNTPCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new FilteringSNTPCache(new MemorySNTPCache(null, null), MAX_AGE);
+    }
+
+    @Test
+    public void testLowestDelayWins() throws ParseException {
+        final SNTPResponse slow = response(0, 1000, 50);
+        final SNTPResponse fast = response(0, 1001, 10);
+        final SNTPResponse slower = response(0, 1002, 70);
+
+        cache.put(slow);
+        Assert.assertSame(slow, cache.get());
+
+        cache.put(fast);
+        Assert.assertSame(fast, cache.get());
+
+        cache.put(slower);
+        Assert.assertSame(fast, cache.get());
+    }
+
+    @Test
+    public void testOldResponseIgnored() throws ParseException {
+        final SNTPResponse old = response(MAX_AGE + 1000, 1000, 10);
+        final SNTPResponse fresh = response(0, 1001, 50);
+
+        cache.put(old);
+        cache.put(fresh);
+
+        Assert.assertSame(fresh, cache.get());
+    }
+
+    @Test
+    public void testWindowSlides() throws ParseException {
+        final SNTPResponse fast = response(0, 1000, 10);
+        cache.put(fast);
+
+        for (int i = 0; i < FilteringSNTPCache.SIZE - 1; i++) {
+            cache.put(response(0, 1000, 50));
+            Assert.assertSame(fast, cache.get());
+        }
+        final SNTPResponse last = response(0, 1000, 40);
+        cache.put(last);
+
+        Assert.assertSame(last, cache.get());
+    }
+
+    @Test
+    public void testPutNull() throws ParseException {
+        cache.put(response(0, 1000, 10));
+        cache.put(null);
+
+        Assert.assertNull(cache.get());
+
+        final SNTPResponse slow = response(0, 1000, 50);
+        cache.put(slow);
+
+        Assert.assertSame(slow, cache.get());
+    }
+
+    @Test
+    public void testBuiltCache() throws ParseException {
+        cache = SNTPCacheBuilder.custom()
+                .setFiltering(true)
+                .build();
+
+        final SNTPResponse good = response(0, 100, 5);
+        cache.put(good);
+        cache.put(response(0, 900, 500));
+
+        Assert.assertSame(good, cache.get());
+    }
+
+    @Test
+    public void testBuiltRefreshingCache() throws ParseException, InterruptedException {
+        // requests are never executed, test answers them by putting responses
+        final BlockingQueue<Runnable> requests = new LinkedBlockingQueue<>();
+        final SNTPClient client = SNTPClientBuilder.custom()
+                .setExecutor(new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        requests.add(command);
+                    }
+                })
+                .build();
+        final CloseableSNTPCache cache = SNTPCacheBuilder.custom()
+                .setFiltering(true)
+                .setRefreshClient(client)
+                .buildCloseable();
+        try {
+            Assert.assertNotNull(requests.poll(1, TimeUnit.SECONDS));
+
+            // responses of default hourly cache arrive every 6 minutes, the good one was put six responses ago
+            final long sampleInterval = (long) (ExpiringSNTPCache.DEFAULT_EXPIRING_INTERVAL * RefreshingSNTPCache.DEFAULT_REFRESH_FRACTION) / FilteringSNTPCache.SIZE;
+            final SNTPResponse good = response(6 * sampleInterval, 100, 5);
+            cache.put(good);
+            for (int i = 5; i >= 0; i--) {
+                cache.put(response(i * sampleInterval, 900, 500));
+                Assert.assertSame(good, cache.get());
+            }
+        } finally {
+            cache.close();
+        }
+    }
+
+    private static SNTPResponse response(long age, long offset, long delay) throws ParseException {
+        final long sys = System.currentTimeMillis() - age;
+        final String sysStr = SNTPResponse.flattenTimestampToString(sys);
+        final String ntpStr = SNTPResponse.flattenTimestampToString(sys + offset);
+
+        return SNTPResponse.unflattenFromString("sys " + sysStr + " ntp " + ntpStr + " off " + offset + " del " + delay + " dis 0");
+    }
+}
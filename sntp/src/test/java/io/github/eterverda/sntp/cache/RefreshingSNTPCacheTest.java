@@ -0,0 +1,128 @@
+package io.github.eterverda.sntp.cache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eterverda.sntp.SNTPClient;
+import io.github.eterverda.sntp.SNTPClientBuilder;
+import io.github.eterverda.sntp.SNTPResponse;
+
+public class RefreshingSNTPCacheTest {
+    private static final long REFRESH_INTERVAL = 200;
+    private static final long RETRY_INTERVAL = 50;
+
+    // requests are never executed, test answers them by calling cache back
+    private final BlockingQueue<Runnable> requests = new LinkedBlockingQueue<>();
+    private SNTPClient client;
+    private RefreshingSNTPCache cache;
+
+    @Before
+    public void setUp() {
+        client = SNTPClientBuilder.custom()
+                .setExecutor(new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        requests.add(command);
+                    }
+                })
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testRefreshBeforeExpiry() throws InterruptedException {
+        cache = new RefreshingSNTPCache(new MemorySNTPCache(null, null), client, REFRESH_INTERVAL, RETRY_INTERVAL, null);
+        // nothing to serve yet
+        Assert.assertNotNull(requests.poll(1, TimeUnit.SECONDS));
+
+        final long start = System.nanoTime();
+        cache.onResponse(response(System.currentTimeMillis()));
+
+        Assert.assertNotNull(requests.poll(1, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(REFRESH_INTERVAL - 10));
+    }
+
+    @Test
+    public void testRetryAfterFailure() throws InterruptedException {
+        cache = new RefreshingSNTPCache(new MemorySNTPCache(null, null), client, REFRESH_INTERVAL, RETRY_INTERVAL, null);
+        Assert.assertNotNull(requests.poll(1, TimeUnit.SECONDS));
+
+        final long start = System.nanoTime();
+        cache.onFailure(new IOException());
+
+        Assert.assertNotNull(requests.poll(1, TimeUnit.SECONDS));
+        final long elapsed = System.nanoTime() - start;
+        Assert.assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(RETRY_INTERVAL - 10));
+        Assert.assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(REFRESH_INTERVAL));
+    }
+
+    @Test
+    public void testClose() throws InterruptedException {
+        cache = new RefreshingSNTPCache(new MemorySNTPCache(null, null), client, REFRESH_INTERVAL, RETRY_INTERVAL, null);
+        Assert.assertNotNull(requests.poll(1, TimeUnit.SECONDS));
+
+        cache.close();
+        final SNTPResponse response = response(System.currentTimeMillis());
+        cache.onResponse(response);
+
+        Assert.assertSame(response, cache.get());
+        Assert.assertNull(requests.poll(REFRESH_INTERVAL + 100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBuiltCacheCanBeClosed() throws InterruptedException {
+        final CloseableSNTPCache built = SNTPCacheBuilder.custom()
+                .setRefreshClient(client)
+                .buildCloseable();
+        Assert.assertNotNull(requests.poll(1, TimeUnit.SECONDS));
+
+        built.close();
+        built.put(null);
+
+        Assert.assertNull(requests.poll(RETRY_INTERVAL, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testStandbyWhileOtherProcessRefreshes() throws IOException, InterruptedException {
+        final File file = File.createTempFile("sntp", null);
+        Assume.assumeTrue(file.exists());
+        try {
+            // other instance holds writer lock as if it was other process
+            final SharedMemorySNTPCache writer = new SharedMemorySNTPCache(file);
+            Assert.assertTrue(writer.tryAcquireWriter());
+            final long responseTime = System.currentTimeMillis() - REFRESH_INTERVAL;
+            writer.put(response(responseTime));
+
+            final SharedMemorySNTPCache shared = new SharedMemorySNTPCache(file);
+            cache = new RefreshingSNTPCache(shared, client, REFRESH_INTERVAL, RETRY_INTERVAL, shared);
+
+            // writer is given two retry intervals before this process takes over
+            Assert.assertNotNull(requests.poll(1, TimeUnit.SECONDS));
+            Assert.assertTrue(System.currentTimeMillis() - responseTime >= REFRESH_INTERVAL + 2 * RETRY_INTERVAL);
+        } finally {
+            if (!file.delete()) {
+                throw new IOException("cannot delete " + file);
+            }
+        }
+    }
+
+    private static SNTPResponse response(long sys) {
+        return SNTPResponse.unflatten(sys, 1000, 10, 0, 0);
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.eterverda.sntp.cache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import io.github.eterverda.sntp.SNTPResponse;
+
+public class SNTPTimelineTest {
+    private static final long START = 1447232173884L;
+    private static final long MINUTE = 60 * 1000;
+
+    private File file;
+    private SNTPTimeline timeline;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("sntp", null);
+        Assume.assumeTrue(file.exists());
+
+        timeline = new SNTPTimeline(file, 8, 60 * MINUTE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        timeline.close();
+        if (file.exists() && !file.delete()) {
+            throw new IOException("cannot delete " + file);
+        }
+    }
+
+    @Test
+    public void testResponseAt() {
+        timeline.append(response(START, 1000, 10));
+        timeline.append(response(START + 10 * MINUTE, 1012, 10));
+        timeline.append(response(START + 20 * MINUTE, 900, 10));
+
+        Assert.assertNull(timeline.responseAt(START - 1));
+        Assert.assertEquals(START + 1000, timeline.responseAt(START).globalTimeMillis(START));
+        // offset is interpolated between records
+        Assert.assertEquals(START + 5 * MINUTE + 1006, timeline.responseAt(START + 5 * MINUTE).globalTimeMillis(START + 5 * MINUTE));
+        Assert.assertEquals(START + 15 * MINUTE + 956, timeline.responseAt(START + 15 * MINUTE).globalTimeMillis(START + 15 * MINUTE));
+        // the latest record is in effect until now
+        Assert.assertEquals(900, timeline.responseAt(START + 600 * MINUTE).getClockOffset());
+    }
+
+    @Test
+    public void testWallClockSetBack() {
+        timeline.append(response(START, 1000, 10));
+        timeline.append(response(START + 10 * MINUTE, 1000, 10));
+        timeline.append(response(START + 20 * MINUTE, 1000, 10));
+
+        timeline.append(response(START + 5 * MINUTE, -300000, 10));
+
+        Assert.assertEquals(2, timeline.size());
+        Assert.assertEquals(-300000, timeline.responseAt(START + 30 * MINUTE).getClockOffset());
+    }
+
+    @Test
+    public void testCompaction() {
+        for (int i = 0; i < 8; i++) {
+            timeline.append(response(START + i * MINUTE, 1000 + i, 100 - i % 2 * 90));
+        }
+        Assert.assertEquals(8, timeline.size());
+
+        timeline.append(response(START + 8 * MINUTE, 1008, 10));
+
+        final List<SNTPResponse> responses = timeline.tail(10);
+        Assert.assertEquals(5, responses.size());
+        // oldest pairs are thinned to response with lower delay
+        Assert.assertEquals(START + MINUTE, responses.get(0).getResponseTimeMillis());
+        Assert.assertEquals(START + 3 * MINUTE, responses.get(1).getResponseTimeMillis());
+        Assert.assertEquals(START + 8 * MINUTE, responses.get(4).getResponseTimeMillis());
+    }
+
+    @Test
+    public void testRetention() {
+        timeline.append(response(START - 120 * MINUTE, 5000, 1));
+        timeline.append(response(START - 30 * MINUTE, 4000, 1));
+
+        // log is far from full but records older than retention are dropped anyway
+        timeline.append(response(START, 1000, 10));
+
+        Assert.assertEquals(2, timeline.size());
+        Assert.assertNull(timeline.responseAt(START - 60 * MINUTE));
+        Assert.assertEquals(4000, timeline.responseAt(START - 30 * MINUTE).getClockOffset());
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        timeline.append(response(START, 1000, 10));
+        timeline.append(response(START + MINUTE, 1001, 10));
+        timeline.close();
+
+        timeline = new SNTPTimeline(file, 4, 60 * MINUTE);
+
+        Assert.assertEquals(2, timeline.size());
+        Assert.assertEquals(1001, timeline.responseAt(START + MINUTE).getClockOffset());
+    }
+
+    @Test
+    public void testReopenDropsOutOfOrderRecords() throws IOException {
+        for (int i = 0; i < 4; i++) {
+            timeline.append(response(START + i * MINUTE, 1000, 10));
+        }
+        timeline.close();
+
+        // as if compaction was interrupted after moving third record to the place of first one
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(SNTPTimeline.HEADER_SIZE);
+            raf.writeLong((START + 2 * MINUTE) * 1000000L);
+        }
+        timeline = new SNTPTimeline(file, 8, 60 * MINUTE);
+
+        Assert.assertEquals(2, timeline.size());
+        Assert.assertEquals(START + 2 * MINUTE, timeline.tail(2).get(0).getResponseTimeMillis());
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenTwice() throws IOException {
+        new SNTPTimeline(file);
+    }
+
+    @Test
+    public void testWarmStart() {
+        // 20 ppm: offset grows by 12 ms every 10 minutes
+        for (int i = 0; i < 6; i++) {
+            timeline.append(response(START + i * 10 * MINUTE, 1000 + i * 12, 10));
+        }
+
+        final SNTPCache cache = SNTPCacheBuilder.custom()
+                .setExpirationInterval(Long.MAX_VALUE)
+                .setFiltering(true)
+                .setDriftCorrection(true)
+                .setTimeline(timeline)
+                .build();
+
+        Assert.assertEquals(20e-6, cache.get().getDrift(), 1e-7);
+        Assert.assertEquals(1060, cache.get().getClockOffset());
+
+        cache.put(response(START + 60 * MINUTE, 1072, 10));
+
+        Assert.assertEquals(20e-6, cache.get().getDrift(), 1e-7);
+        Assert.assertEquals(7, timeline.size());
+    }
+
+    private static SNTPResponse response(long sys, long offset, long delay) {
+        return SNTPResponse.unflatten(sys, offset, delay, 0, 0);
+    }
+}
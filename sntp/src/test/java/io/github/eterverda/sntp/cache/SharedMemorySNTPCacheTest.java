@@ -0,0 +1,151 @@
+package io.github.eterverda.sntp.cache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.text.ParseException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.eterverda.sntp.SNTPResponse;
+
+public class SharedMemorySNTPCacheTest {
+    private static final String WELL_FORMED_RESPONSE_STRING = "sys 2015-11-11T08:56:13.884Z ntp 2015-11-11T08:56:14.885Z off 1001 del 12 dis 3";
+    private static SNTPResponse RESPONSE;
+
+    private File file;
+    private SharedMemorySNTPCache writer;
+    private SharedMemorySNTPCache reader;
+
+    @BeforeClass
+    public static void setUpClass() throws ParseException {
+        RESPONSE = SNTPResponse.unflattenFromString(WELL_FORMED_RESPONSE_STRING);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("sntp", null);
+        Assume.assumeTrue(file.exists());
+
+        writer = new SharedMemorySNTPCache(file);
+        reader = new SharedMemorySNTPCache(file);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        writer = null;
+        reader = null;
+        if (file.exists() && !file.delete()) {
+            throw new IOException("cannot delete " + file);
+        }
+        file = null;
+    }
+
+    @Test
+    public void testReadEmpty() {
+        Assert.assertNull(reader.get());
+    }
+
+    @Test
+    public void testReadWrite() {
+        writer.put(RESPONSE);
+
+        final SNTPResponse response = reader.get();
+
+        Assert.assertNotNull(response);
+        Assert.assertEquals(WELL_FORMED_RESPONSE_STRING, response.flattenToString());
+        Assert.assertSame(response, reader.get());
+    }
+
+    @Test
+    public void testWriteNull() {
+        writer.put(RESPONSE);
+        Assert.assertNotNull(reader.get());
+
+        writer.put(null);
+
+        Assert.assertNull(reader.get());
+    }
+
+    @Test
+    public void testReadCorrupted() throws IOException {
+        writer.put(RESPONSE);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(20);
+            final int b = raf.read();
+            raf.seek(20);
+            raf.write(b ^ 0x01);
+        }
+
+        Assert.assertNull(reader.get());
+    }
+
+    @Test
+    public void testSingleWriter() {
+        Assert.assertTrue(writer.tryAcquireWriter());
+        Assert.assertTrue(writer.tryAcquireWriter());
+        Assert.assertFalse(reader.tryAcquireWriter());
+    }
+
+    @Test
+    public void testConcurrentInstancesDoNotDropWrites() throws Exception {
+        final int puts = 500;
+        final AtomicInteger offset = new AtomicInteger();
+        final Thread[] threads = new Thread[2];
+        for (int t = 0; t < threads.length; t++) {
+            final SharedMemorySNTPCache cache = t == 0 ? writer : reader;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < puts; i++) {
+                        cache.put(SNTPResponse.unflatten(RESPONSE.getResponseTimeMillis(), offset.incrementAndGet(), 10, 0, 0));
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // every write of distinct response advances sequence by two
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(8);
+            Assert.assertEquals(2L * puts * threads.length, raf.readLong());
+        }
+    }
+
+    @Test
+    public void testOtherProcessWriteIsVisible() throws Exception {
+        final SNTPCache cache = SNTPCacheBuilder.custom()
+                .setSharedFile(file)
+                .build();
+        final long now = System.currentTimeMillis();
+        cache.put(SNTPResponse.unflatten(now, 1000, 10, 0, 0));
+        Assert.assertEquals(1000, cache.get().getClockOffset());
+
+        final Process process = new ProcessBuilder(
+                new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(),
+                "-cp", System.getProperty("java.class.path"),
+                OtherProcess.class.getName(), file.getPath(), String.valueOf(now), "2000")
+                .inheritIO()
+                .start();
+        Assert.assertEquals(0, process.waitFor());
+
+        Assert.assertEquals(2000, cache.get().getClockOffset());
+    }
+
+    public static final class OtherProcess {
+        public static void main(String[] args) {
+            new SharedMemorySNTPCache(new File(args[0]))
+                    .put(SNTPResponse.unflatten(Long.parseLong(args[1]), Long.parseLong(args[2]), 10, 0, 0));
+        }
+    }
+}
@@ -8,11 +8,17 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
+import java.util.zip.CRC32;
 
 import io.github.eterverda.sntp.SNTPResponse;
 
@@ -89,7 +95,39 @@ public class SimpleFileSNTPCacheTest {
         final SNTPResponse response = cache.get();
 
         Assert.assertNull(response);
-        Assert.assertFalse(file.exists());
+        Assert.assertTrue(file.exists());
+    }
+
+    @Test
+    public void testReadTruncated() throws IOException {
+        cache.put(RESPONSE);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(SimpleFileSNTPCache.SIZE / 2);
+        }
+
+        Assert.assertNull(cache.get());
+        Assert.assertTrue(file.exists());
+    }
+
+    @Test
+    public void testConcurrentReadWrite() throws InterruptedException {
+        cache.put(RESPONSE);
+        final SNTPResponse other = SNTPResponse.unflatten(RESPONSE.getResponseTimeMillis(), 2002, 10, 0, 0);
+        final Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 1000; i++) {
+                    cache.put(i % 2 == 0 ? other : RESPONSE);
+                }
+            }
+        });
+        writer.start();
+
+        while (writer.isAlive()) {
+            Assert.assertNotNull(cache.get());
+        }
+        writer.join();
+        Assert.assertNotNull(cache.get());
     }
 
     @Test
@@ -124,4 +162,73 @@ public class SimpleFileSNTPCacheTest {
 
         Assert.assertEquals(WELL_FORMED_RESPONSE_STRING, response.flattenToString());
     }
+
+    @Test
+    public void testWriteBinary() throws IOException {
+        cache.put(RESPONSE);
+
+        Assert.assertEquals(SimpleFileSNTPCache.SIZE, file.length());
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            Assert.assertEquals(SimpleFileSNTPCache.MAGIC, in.readInt());
+            Assert.assertEquals(SimpleFileSNTPCache.VERSION, in.readInt());
+        }
+    }
+
+    @Test
+    public void testReadMigratesText() throws IOException {
+        final BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        writer.write(WELL_FORMED_RESPONSE_STRING);
+        writer.write('\n');
+        writer.close();
+
+        Assert.assertNotNull(cache.get());
+        Assert.assertEquals(SimpleFileSNTPCache.SIZE, file.length());
+
+        final SNTPResponse response = cache.get();
+
+        Assert.assertNotNull(response);
+        Assert.assertEquals(WELL_FORMED_RESPONSE_STRING, response.flattenToString());
+    }
+
+    @Test
+    public void testReadMigratesMillis() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SimpleFileSNTPCache.SIZE);
+        buffer.putInt(SimpleFileSNTPCache.MAGIC);
+        buffer.putInt(SimpleFileSNTPCache.VERSION_MILLIS);
+        buffer.putLong(RESPONSE.getResponseTimeMillis());
+        buffer.putLong(RESPONSE.getClockOffset());
+        buffer.putLong(SNTPResponse.UNKNOWN);
+        buffer.putLong(SNTPResponse.UNKNOWN);
+        buffer.putDouble(0);
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(buffer.array());
+        }
+
+        Assert.assertEquals(WELL_FORMED_RESPONSE_STRING, cache.get().flattenToString());
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            Assert.assertEquals(SimpleFileSNTPCache.MAGIC, in.readInt());
+            Assert.assertEquals(SimpleFileSNTPCache.VERSION, in.readInt());
+            Assert.assertEquals(RESPONSE.getResponseTimeNanos(), in.readLong());
+        }
+    }
+
+    @Test
+    public void testReadCorrupted() throws IOException {
+        cache.put(RESPONSE);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(20);
+            final int b = raf.read();
+            raf.seek(20);
+            raf.write(b ^ 0x01);
+        }
+
+        final SNTPResponse response = cache.get();
+
+        Assert.assertNull(response);
+        Assert.assertFalse(file.exists());
+    }
 }
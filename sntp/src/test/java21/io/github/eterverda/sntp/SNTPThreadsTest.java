@@ -0,0 +1,52 @@
+package io.github.eterverda.sntp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SNTPThreadsTest {
+    private StandInServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StandInServer();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testAsyncRequestRunsOnVirtualThread() throws InterruptedException {
+        final SNTPClient client = SNTPClientBuilder.custom()
+                .setHosts(new SNTPHosts("ntp.test"))
+                .setResolver(StandInServer.loopback())
+                .setPort(server.getPort())
+                .build();
+        final AtomicBoolean virtual = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        client.executeAsync(new SNTPCallback() {
+            @Override
+            public void onResponse(SNTPResponse response) {
+                virtual.set(Thread.currentThread().isVirtual());
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(IOException exception) {
+                done.countDown();
+            }
+        });
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(virtual.get());
+    }
+}